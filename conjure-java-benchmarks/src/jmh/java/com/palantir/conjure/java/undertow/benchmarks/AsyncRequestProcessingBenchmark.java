@@ -0,0 +1,160 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.conjure.java.undertow.lib.BinaryResponseBody;
+import com.palantir.conjure.java.undertow.runtime.ConjureHandler;
+import com.palantir.conjure.java.undertow.runtime.ConjureUndertowRuntime;
+import com.palantir.product.AsyncRequestProcessingTestServiceEndpoints;
+import com.palantir.product.UndertowAsyncRequestProcessingTestService;
+import io.undertow.Undertow;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the generated {@link AsyncRequestProcessingTestServiceEndpoints} served by Undertow over loopback, in
+ * the style of {@code AsyncRequestProcessingTest}. Compares futures which are already complete when the endpoint
+ * returns, whose result is written without dispatching, with futures completed without delay but asynchronously, on a
+ * thread of an unrelated executor, whose result is dispatched to the server task pool.
+ *
+ * <p>Run with {@code ./gradlew :conjure-java-benchmarks:jmh -PjmhIncludes=AsyncRequestProcessingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(32)
+@SuppressWarnings({"checkstyle:designforextension", "checkstyle:VisibilityModifier"})
+public class AsyncRequestProcessingBenchmark {
+
+    private static final int PORT = 12348;
+    private static final URI LONG_POLL = URI.create("http://localhost:" + PORT + "/async/delay?delayMillis=0");
+
+    /** Whether the futures returned by the endpoint are already complete, or completed by another thread. */
+    @Param({"complete", "delayed"})
+    public String completion;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient client =
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final HttpRequest request = HttpRequest.newBuilder(LONG_POLL).GET().build();
+    private Undertow server;
+
+    @Setup
+    public void setup() {
+        LongPollResource resource = new LongPollResource(scheduler, executor, "complete".equals(completion));
+        server = Undertow.builder()
+                .addHttpListener(PORT, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder().build())
+                        .services(AsyncRequestProcessingTestServiceEndpoints.of(resource))
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int longPoll() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static final class LongPollResource implements UndertowAsyncRequestProcessingTestService {
+
+        private final ScheduledExecutorService scheduler;
+        private final Executor completer;
+        private final boolean complete;
+
+        LongPollResource(ScheduledExecutorService scheduler, Executor completer, boolean complete) {
+            this.scheduler = scheduler;
+            this.completer = completer;
+            this.complete = complete;
+        }
+
+        @Override
+        public ListenableFuture<String> delay(OptionalInt delayMillis) {
+            if (complete) {
+                return Futures.immediateFuture("Completed");
+            }
+            SettableFuture<String> result = SettableFuture.create();
+            scheduler.schedule(
+                    () -> completer.execute(() -> result.set("Completed")),
+                    delayMillis.orElse(0),
+                    TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        @Override
+        public ListenableFuture<String> delayFiveSecondTimeout(OptionalInt delayMillis) {
+            return delay(delayMillis);
+        }
+
+        @Override
+        public ListenableFuture<Void> throwsInHandler() {
+            return Futures.immediateFuture(null);
+        }
+
+        @Override
+        public ListenableFuture<Void> failedFuture(OptionalInt _delayMillis) {
+            return Futures.immediateFuture(null);
+        }
+
+        @Override
+        public ListenableFuture<Optional<BinaryResponseBody>> binary(Optional<String> _stringValue) {
+            return Futures.immediateFuture(Optional.empty());
+        }
+
+        @Override
+        public ListenableFuture<Object> futureTraceId(OptionalInt _delayMillis) {
+            return Futures.immediateFuture("");
+        }
+    }
+}
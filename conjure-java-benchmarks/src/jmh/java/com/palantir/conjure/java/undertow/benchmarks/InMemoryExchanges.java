@@ -0,0 +1,231 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.io.ByteStreams;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.io.BlockingReceiverImpl;
+import io.undertow.io.BlockingSenderImpl;
+import io.undertow.io.Receiver;
+import io.undertow.io.Sender;
+import io.undertow.server.BlockingHttpExchange;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.server.protocol.http.HttpServerConnection;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.HttpString;
+import io.undertow.util.Protocols;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import org.xnio.OptionMap;
+import org.xnio.StreamConnection;
+import org.xnio.conduits.ConduitStreamSinkChannel;
+import org.xnio.conduits.ConduitStreamSourceChannel;
+import org.xnio.conduits.StreamSinkConduit;
+import org.xnio.conduits.StreamSourceConduit;
+
+/**
+ * Executes requests against a {@link HttpHandler} entirely in-process. No socket is involved: request bodies are read
+ * from memory and response bodies are discarded, so benchmarks measure the Conjure handler chain rather than the
+ * network stack.
+ */
+final class InMemoryExchanges {
+
+    private static final AttachmentKey<BlockingHttpExchange> IN_MEMORY =
+            AttachmentKey.create(BlockingHttpExchange.class);
+    private static final OutputStream DISCARD = ByteStreams.nullOutputStream();
+
+    private final ServerConnection connection = new HttpServerConnection(
+            stubStreamConnection(), null, null, OptionMap.EMPTY, 0, null);
+
+    /**
+     * Undertow's {@code BlockingHandler} replaces the exchange's {@link BlockingHttpExchange}, so the in-memory streams
+     * are installed again immediately before each endpoint implementation runs.
+     */
+    static UndertowService inMemory(UndertowService service) {
+        return runtime -> service.endpoints(runtime).stream()
+                .map(endpoint -> Endpoint.builder()
+                        .from(endpoint)
+                        .handler(new InMemoryBlockingHandler(endpoint.handler()))
+                        .build())
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /** Executes the request on the calling thread and returns the response status code. */
+    int execute(HttpHandler handler, BenchmarkRequest request) throws Exception {
+        HeaderMap requestHeaders = new HeaderMap();
+        for (HeaderValues values : request.headers) {
+            requestHeaders.putAll(values.getHeaderName(), values);
+        }
+        HttpServerExchange exchange = new HttpServerExchange(connection, requestHeaders, new HeaderMap(), 0);
+        exchange.setProtocol(Protocols.HTTP_1_1);
+        exchange.setRequestMethod(request.method);
+        exchange.setRequestURI(request.path);
+        exchange.setRequestPath(request.path);
+        exchange.setRelativePath(request.path);
+        exchange.setQueryString(request.queryString);
+        for (Map.Entry<String, String> entry : request.queryParameters.entries()) {
+            exchange.addQueryParam(entry.getKey(), entry.getValue());
+        }
+        BlockingHttpExchange blocking = new InMemoryBlockingHttpExchange(exchange, request.body);
+        exchange.putAttachment(IN_MEMORY, blocking);
+        exchange.startBlocking(blocking);
+        handler.handleRequest(exchange);
+        return exchange.getStatusCode();
+    }
+
+    private static StreamConnection stubStreamConnection() {
+        // Stub-only mocks do not record invocations, keeping the mocking library off of allocation profiles.
+        StreamConnection streamConnection = mock(StreamConnection.class, withSettings().stubOnly());
+        ConduitStreamSinkChannel sinkChannel =
+                new ConduitStreamSinkChannel(null, mock(StreamSinkConduit.class, withSettings().stubOnly()));
+        when(streamConnection.getSinkChannel()).thenReturn(sinkChannel);
+        ConduitStreamSourceChannel sourceChannel =
+                new ConduitStreamSourceChannel(null, mock(StreamSourceConduit.class, withSettings().stubOnly()));
+        when(streamConnection.getSourceChannel()).thenReturn(sourceChannel);
+        return streamConnection;
+    }
+
+    static BenchmarkRequest.Builder request(HttpString method, String path) {
+        return new BenchmarkRequest.Builder(method, path);
+    }
+
+    /** Immutable description of a request which may be executed any number of times. */
+    static final class BenchmarkRequest {
+
+        private final HttpString method;
+        private final String path;
+        private final String queryString;
+        private final ImmutableListMultimap<String, String> queryParameters;
+        private final HeaderMap headers;
+        private final byte[] body;
+
+        private BenchmarkRequest(Builder builder) {
+            this.method = builder.method;
+            this.path = builder.path;
+            this.queryParameters = builder.queryParameters.build();
+            this.queryString = queryParameters.entries().stream()
+                    .map(entry -> entry.getKey() + '=' + entry.getValue())
+                    .reduce((first, second) -> first + '&' + second)
+                    .orElse("");
+            this.headers = builder.headers;
+            this.body = builder.body;
+        }
+
+        static final class Builder {
+
+            private final HttpString method;
+            private final String path;
+            private final ImmutableListMultimap.Builder<String, String> queryParameters =
+                    ImmutableListMultimap.builder();
+            private final HeaderMap headers = new HeaderMap();
+            private byte[] body = new byte[0];
+
+            private Builder(HttpString method, String path) {
+                this.method = method;
+                this.path = path;
+            }
+
+            @CanIgnoreReturnValue
+            Builder header(HttpString name, String value) {
+                headers.add(name, value);
+                return this;
+            }
+
+            @CanIgnoreReturnValue
+            Builder queryParameter(String name, String value) {
+                queryParameters.put(name, value);
+                return this;
+            }
+
+            @CanIgnoreReturnValue
+            Builder body(byte[] value) {
+                body = value.clone();
+                return this;
+            }
+
+            BenchmarkRequest build() {
+                return new BenchmarkRequest(this);
+            }
+        }
+    }
+
+    private static final class InMemoryBlockingHandler implements HttpHandler {
+
+        private final HttpHandler next;
+
+        InMemoryBlockingHandler(HttpHandler next) {
+            this.next = next;
+        }
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            BlockingHttpExchange blocking = exchange.getAttachment(IN_MEMORY);
+            if (blocking != null) {
+                exchange.startBlocking(blocking);
+            }
+            next.handleRequest(exchange);
+        }
+    }
+
+    private static final class InMemoryBlockingHttpExchange implements BlockingHttpExchange {
+
+        private final HttpServerExchange exchange;
+        private final InputStream requestBody;
+
+        InMemoryBlockingHttpExchange(HttpServerExchange exchange, byte[] requestBody) {
+            this.exchange = exchange;
+            this.requestBody = new ByteArrayInputStream(requestBody);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return requestBody;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return DISCARD;
+        }
+
+        @Override
+        public Sender getSender() {
+            return new BlockingSenderImpl(exchange, DISCARD);
+        }
+
+        @Override
+        public Receiver getReceiver() {
+            return new BlockingReceiverImpl(exchange, requestBody);
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.conjure.java.undertow.lib.PlainSerDe;
+import com.palantir.conjure.java.undertow.runtime.ConjureUndertowRuntime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deserialization of a query parameter of integer ids, as received by bulk lookup endpoints, comparing the
+ * runtime's primitive-backed collections with the boxed Guava collections built by earlier versions. Each benchmark
+ * reads every element of the result, as an endpoint would.
+ *
+ * <p>Run with {@code ./gradlew :conjure-java-benchmarks:jmh -PjmhIncludes=PlainSerDeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@SuppressWarnings({"checkstyle:designforextension", "checkstyle:VisibilityModifier"})
+public class PlainSerDeBenchmark {
+
+    private static final PlainSerDe PLAIN = ConjureUndertowRuntime.builder().build().plainSerDe();
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private final Deque<String> ids = new ArrayDeque<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < size; i++) {
+            // Ids outside the Integer cache, which boxed collections allocate
+            ids.add(Integer.toString(100_000 + i * 7));
+        }
+    }
+
+    @Benchmark
+    public long integerList() {
+        return sum(PLAIN.deserializeIntegerList(ids));
+    }
+
+    @Benchmark
+    public long integerListBoxed() {
+        ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+        for (String id : ids) {
+            builder.add(PLAIN.deserializeInteger(id));
+        }
+        return sum(builder.build());
+    }
+
+    @Benchmark
+    public long integerSet() {
+        return sum(PLAIN.deserializeIntegerSet(ids));
+    }
+
+    @Benchmark
+    public long integerSetBoxed() {
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (String id : ids) {
+            builder.add(PLAIN.deserializeInteger(id));
+        }
+        return sum(builder.build());
+    }
+
+    private static long sum(Collection<Integer> values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
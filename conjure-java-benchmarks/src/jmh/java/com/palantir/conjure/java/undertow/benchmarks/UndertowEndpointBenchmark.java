@@ -0,0 +1,177 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.benchmarks;
+
+import com.palantir.conjure.java.undertow.benchmarks.InMemoryExchanges.BenchmarkRequest;
+import com.palantir.conjure.java.undertow.runtime.ConjureHandler;
+import com.palantir.conjure.java.undertow.runtime.ConjureUndertowRuntime;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.exceptions.SafeIllegalStateException;
+import com.palantir.product.EteServiceEndpoints;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives the generated {@link EteServiceEndpoints} through the full {@link ConjureHandler} chain using in-process
+ * exchanges. Each benchmark isolates one shape of per-request work: authorization header parsing, path and query
+ * parameter decoding, request body deserialization, and response serialization.
+ *
+ * <p>Run with {@code ./gradlew :conjure-java-benchmarks:jmh}, allocation rates are reported by the {@code gc} profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@SuppressWarnings({"checkstyle:designforextension", "checkstyle:VisibilityModifier"})
+public class UndertowEndpointBenchmark {
+
+    @Param({"application/json", "application/x-jackson-smile"})
+    public String accept;
+
+    private final InMemoryExchanges exchanges = new InMemoryExchanges();
+    private HttpHandler handler;
+    private BenchmarkRequest authHeader;
+    private BenchmarkRequest pathParameter;
+    private BenchmarkRequest queryParameters;
+    private BenchmarkRequest deserializeBody;
+    private BenchmarkRequest serializeResponse;
+    private BenchmarkRequest binaryResponse;
+
+    @Setup
+    public void setup() throws Exception {
+        handler = ConjureHandler.builder()
+                .runtime(ConjureUndertowRuntime.builder().build())
+                .services(InMemoryExchanges.inMemory(EteServiceEndpoints.of(new BenchmarkEteResource())))
+                .build();
+        String authorization = "Bearer " + jsonWebToken();
+        authHeader = InMemoryExchanges.request(Methods.GET, "/base/no-return")
+                .header(Headers.AUTHORIZATION, authorization)
+                .build();
+        pathParameter = InMemoryExchanges.request(Methods.GET, "/base/externalLong/1234567890")
+                .header(Headers.AUTHORIZATION, authorization)
+                .header(Headers.ACCEPT, accept)
+                .build();
+        queryParameters = InMemoryExchanges.request(Methods.GET, "/base/datasets/ri.foundry.main.dataset.1234/strings")
+                .header(Headers.AUTHORIZATION, authorization)
+                .queryParameter("strings", "a")
+                .queryParameter("strings", "b")
+                .queryParameter("longs", "1")
+                .queryParameter("longs", "2")
+                .queryParameter("ints", "3")
+                .queryParameter("ints", "4")
+                .build();
+        deserializeBody = InMemoryExchanges.request(Methods.PUT, "/base/list/strings")
+                .header(Headers.AUTHORIZATION, authorization)
+                .header(Headers.CONTENT_TYPE, "application/json")
+                .body("[\"one\",\"two\",\"three\",\"four\",\"five\"]".getBytes(StandardCharsets.UTF_8))
+                .build();
+        serializeResponse = InMemoryExchanges.request(Methods.GET, "/base/datetime")
+                .header(Headers.AUTHORIZATION, authorization)
+                .header(Headers.ACCEPT, accept)
+                .build();
+        binaryResponse = InMemoryExchanges.request(Methods.GET, "/base/binary")
+                .header(Headers.AUTHORIZATION, authorization)
+                .build();
+
+        // Fail fast rather than benchmarking the 404 or error handling paths by accident.
+        checkStatus(authHeader(), StatusCodes.NO_CONTENT);
+        checkStatus(pathParameter(), StatusCodes.OK);
+        checkStatus(queryParameters(), StatusCodes.NO_CONTENT);
+        checkStatus(deserializeBody(), StatusCodes.NO_CONTENT);
+        checkStatus(serializeResponse(), StatusCodes.OK);
+        checkStatus(binaryResponse(), StatusCodes.OK);
+    }
+
+    @Benchmark
+    public int authHeader() throws Exception {
+        return exchanges.execute(handler, authHeader);
+    }
+
+    @Benchmark
+    public int pathParameter() throws Exception {
+        return exchanges.execute(handler, pathParameter);
+    }
+
+    @Benchmark
+    public int queryParameters() throws Exception {
+        return exchanges.execute(handler, queryParameters);
+    }
+
+    @Benchmark
+    public int deserializeBody() throws Exception {
+        return exchanges.execute(handler, deserializeBody);
+    }
+
+    @Benchmark
+    public int serializeResponse() throws Exception {
+        return exchanges.execute(handler, serializeResponse);
+    }
+
+    @Benchmark
+    public int binaryResponse() throws Exception {
+        return exchanges.execute(handler, binaryResponse);
+    }
+
+    private static void checkStatus(int actual, int expected) {
+        if (actual != expected) {
+            throw new SafeIllegalStateException(
+                    "Unexpected benchmark response status",
+                    SafeArg.of("expected", expected),
+                    SafeArg.of("actual", actual));
+        }
+    }
+
+    /** Creates an unsigned token in the shape clients send so that JWT parsing is included in the measurements. */
+    private static String jsonWebToken() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = "{\"alg\":\"ES256\",\"typ\":\"JWT\"}";
+        String payload = "{\"sub\":\"" + uuid() + "\",\"sid\":\"" + uuid() + "\",\"jti\":\"" + uuid() + "\"}";
+        return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8))
+                + '.'
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + '.'
+                + encoder.encodeToString(new byte[64]);
+    }
+
+    private static String uuid() {
+        UUID uuid = UUID.randomUUID();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+}
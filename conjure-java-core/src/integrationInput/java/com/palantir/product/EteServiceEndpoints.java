@@ -6,6 +6,7 @@ import com.palantir.conjure.java.lib.SafeLong;
 import com.palantir.conjure.java.undertow.lib.BinaryResponseBody;
 import com.palantir.conjure.java.undertow.lib.Deserializer;
 import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.PathParameters;
 import com.palantir.conjure.java.undertow.lib.Serializer;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
 import com.palantir.conjure.java.undertow.lib.UndertowRuntime;
@@ -18,7 +19,6 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
-import io.undertow.util.PathTemplateMatch;
 import io.undertow.util.StatusCodes;
 import java.io.IOException;
 import java.time.OffsetDateTime;
@@ -611,9 +611,8 @@ public final class EteServiceEndpoints implements UndertowService {
         @Override
         public void handleRequest(HttpServerExchange exchange) throws IOException {
             AuthHeader authHeader = runtime.auth().header(exchange);
-            Map<String, String> pathParams =
-                    exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters();
-            String param = runtime.plainSerDe().deserializeString(pathParams.get("param"));
+            PathParameters pathParams = PathParameters.of(exchange);
+            String param = runtime.plainSerDe().deserializeString(pathParams.get(0, "param"));
             String result = delegate.path(authHeader, param);
             serializer.serialize(result, exchange);
         }
@@ -660,9 +659,8 @@ public final class EteServiceEndpoints implements UndertowService {
         @Override
         public void handleRequest(HttpServerExchange exchange) throws IOException {
             AuthHeader authHeader = runtime.auth().header(exchange);
-            Map<String, String> pathParams =
-                    exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters();
-            long param = Long.valueOf(runtime.plainSerDe().deserializeString(pathParams.get("param")));
+            PathParameters pathParams = PathParameters.of(exchange);
+            long param = Long.valueOf(runtime.plainSerDe().deserializeString(pathParams.get(0, "param")));
             long result = delegate.externalLongPath(authHeader, param);
             serializer.serialize(result, exchange);
         }
@@ -1413,9 +1411,8 @@ public final class EteServiceEndpoints implements UndertowService {
         @Override
         public void handleRequest(HttpServerExchange exchange) throws IOException {
             AuthHeader authHeader = runtime.auth().header(exchange);
-            Map<String, String> pathParams =
-                    exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters();
-            ResourceIdentifier datasetRid = runtime.plainSerDe().deserializeRid(pathParams.get("datasetRid"));
+            PathParameters pathParams = PathParameters.of(exchange);
+            ResourceIdentifier datasetRid = runtime.plainSerDe().deserializeRid(pathParams.get(0, "datasetRid"));
             Map<String, Deque<String>> queryParams = exchange.getQueryParameters();
             Set<StringAliasExample> strings =
                     runtime.plainSerDe().deserializeComplexSet(queryParams.get("strings"), StringAliasExample::valueOf);
@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.palantir.conjure.java.undertow.lib.Deserializer;
 import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.PathParameters;
 import com.palantir.conjure.java.undertow.lib.Serializer;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
 import com.palantir.conjure.java.undertow.lib.UndertowRuntime;
@@ -14,7 +15,6 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
-import io.undertow.util.PathTemplateMatch;
 import io.undertow.util.StatusCodes;
 import java.io.IOException;
 import java.util.Deque;
@@ -64,9 +64,8 @@ public final class NameCollisionServiceEndpoints implements UndertowService {
             AuthHeader authHeader = runtime.auth().header(exchange);
             String deserializer_ = deserializer.deserialize(exchange);
             runtime.markers().param("com.palantir.logsafe.Safe", "deserializer", deserializer_, exchange);
-            Map<String, String> pathParams =
-                    exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters();
-            String runtime_ = runtime.plainSerDe().deserializeString(pathParams.get("runtime"));
+            PathParameters pathParams = PathParameters.of(exchange);
+            String runtime_ = runtime.plainSerDe().deserializeString(pathParams.get(0, "runtime"));
             runtime.markers().param("com.palantir.logsafe.Safe", "runtime", runtime_, exchange);
             HeaderMap headerParams = exchange.getRequestHeaders();
             String serializer_ = runtime.plainSerDe().deserializeString(headerParams.get("Serializer"));
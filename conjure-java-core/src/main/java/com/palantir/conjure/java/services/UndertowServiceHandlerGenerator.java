@@ -31,6 +31,7 @@ import com.palantir.conjure.java.types.CodeBlocks;
 import com.palantir.conjure.java.types.TypeMapper;
 import com.palantir.conjure.java.undertow.lib.Deserializer;
 import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.PathParameters;
 import com.palantir.conjure.java.undertow.lib.ReturnValueWriter;
 import com.palantir.conjure.java.undertow.lib.Serializer;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
@@ -89,6 +90,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.lang.model.element.Modifier;
 import org.apache.commons.lang3.StringUtils;
 
@@ -394,6 +397,7 @@ final class UndertowServiceHandlerGenerator {
     }
 
     private static final String PATH_PARAMS_VAR_NAME = "pathParams";
+    private static final Pattern PATH_PARAMETER = Pattern.compile("\\{([^}:*]+)[^}]*}");
     private static final String QUERY_PARAMS_VAR_NAME = "queryParams";
     private static final String HEADER_PARAMS_VAR_NAME = "headerParams";
 
@@ -631,12 +635,7 @@ final class UndertowServiceHandlerGenerator {
             TypeMapper typeMapper) {
         if (hasPathArgument(endpointDefinition.getArgs())) {
             code.addStatement(
-                    "$1T<$2T, $2T> $3N = $4N.getAttachment($5T.ATTACHMENT_KEY).getParameters()",
-                    Map.class,
-                    String.class,
-                    PATH_PARAMS_VAR_NAME,
-                    EXCHANGE_VAR_NAME,
-                    io.undertow.util.PathTemplateMatch.class);
+                    "$1T $2N = $1T.of($3N)", PathParameters.class, PATH_PARAMS_VAR_NAME, EXCHANGE_VAR_NAME);
             code.add(generatePathParameterCodeBlock(endpointDefinition, typeDefinitions, typeMapper));
         }
     }
@@ -690,15 +689,29 @@ final class UndertowServiceHandlerGenerator {
             EndpointDefinition endpoint,
             Map<com.palantir.conjure.spec.TypeName, TypeDefinition> typeDefinitions,
             TypeMapper typeMapper) {
+        List<String> pathParamNames = pathParameterNames(endpoint);
         return generateParameterCodeBlock(
                 endpoint,
                 ParameterTypeVisitor.IS_PATH,
-                PATH_PARAMS_VAR_NAME,
-                arg -> arg.getArgName().get(),
+                arg -> {
+                    String name = arg.getArgName().get();
+                    // Path parameters are read by their index in the template, avoiding a lookup by name
+                    return CodeBlock.of("$N.get($L, $S)", PATH_PARAMS_VAR_NAME, pathParamNames.indexOf(name), name);
+                },
                 typeDefinitions,
                 typeMapper);
     }
 
+    /** Returns the names of the path parameters in the order they appear in the endpoint template. */
+    private static List<String> pathParameterNames(EndpointDefinition endpoint) {
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PATH_PARAMETER.matcher(endpoint.getHttpPath().get());
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
     private CodeBlock generateQueryParameterCodeBlock(
             EndpointDefinition endpoint,
             Map<com.palantir.conjure.spec.TypeName, TypeDefinition> typeDefinitions,
@@ -706,11 +719,13 @@ final class UndertowServiceHandlerGenerator {
         return generateParameterCodeBlock(
                 endpoint,
                 ParameterTypeVisitor.IS_QUERY,
-                QUERY_PARAMS_VAR_NAME,
-                arg -> arg.getParamType()
-                        .accept(ParameterTypeVisitor.QUERY)
-                        .getParamId()
-                        .get(),
+                arg -> CodeBlock.of(
+                        "$N.get($S)",
+                        QUERY_PARAMS_VAR_NAME,
+                        arg.getParamType()
+                                .accept(ParameterTypeVisitor.QUERY)
+                                .getParamId()
+                                .get()),
                 typeDefinitions,
                 typeMapper);
     }
@@ -722,11 +737,13 @@ final class UndertowServiceHandlerGenerator {
         return generateParameterCodeBlock(
                 endpoint,
                 ParameterTypeVisitor.IS_HEADER,
-                HEADER_PARAMS_VAR_NAME,
-                arg -> arg.getParamType()
-                        .accept(ParameterTypeVisitor.HEADER)
-                        .getParamId()
-                        .get(),
+                arg -> CodeBlock.of(
+                        "$N.get($S)",
+                        HEADER_PARAMS_VAR_NAME,
+                        arg.getParamType()
+                                .accept(ParameterTypeVisitor.HEADER)
+                                .getParamId()
+                                .get()),
                 typeDefinitions,
                 typeMapper);
     }
@@ -734,8 +751,7 @@ final class UndertowServiceHandlerGenerator {
     private CodeBlock generateParameterCodeBlock(
             EndpointDefinition endpoint,
             ParameterType.Visitor<Boolean> paramTypeVisitor,
-            String paramsVarName,
-            Function<ArgumentDefinition, String> toParamId,
+            Function<ArgumentDefinition, CodeBlock> toParamValue,
             Map<com.palantir.conjure.spec.TypeName, TypeDefinition> typeDefinitions,
             TypeMapper typeMapper) {
         return CodeBlocks.of(endpoint.getArgs().stream()
@@ -749,13 +765,13 @@ final class UndertowServiceHandlerGenerator {
                             || TypeFunctions.isListOrSet(arg.getType())) {
                         // type is not an alias or optional of an alias
                         retrieveParam = decodePlainParameterCodeBlock(
-                                arg.getType(), typeMapper, paramName, paramsVarName, toParamId.apply(arg));
+                                arg.getType(), typeMapper, paramName, toParamValue.apply(arg));
                     } else {
                         // type contains aliases: decode raw value and then construct real value from raw one
                         String rawVarName = arg.getArgName().get() + "Raw";
                         retrieveParam = CodeBlocks.of(
                                 decodePlainParameterCodeBlock(
-                                        normalizedType, typeMapper, rawVarName, paramsVarName, toParamId.apply(arg)),
+                                        normalizedType, typeMapper, rawVarName, toParamValue.apply(arg)),
                                 CodeBlocks.statement(
                                         "$1T $2N = $3L",
                                         typeMapper.getClassName(arg.getType()),
@@ -771,30 +787,28 @@ final class UndertowServiceHandlerGenerator {
     }
 
     private CodeBlock decodePlainParameterCodeBlock(
-            Type type, TypeMapper typeMapper, String resultVarName, String paramsVarName, String paramId) {
+            Type type, TypeMapper typeMapper, String resultVarName, CodeBlock paramValue) {
         if (type.accept(MoreVisitors.IS_EXTERNAL)) {
             return CodeBlocks.statement(
-                    "$1T $2N = $3T.valueOf($4N.plainSerDe().deserializeString($5N.get($6S)))",
+                    "$1T $2N = $3T.valueOf($4N.plainSerDe().deserializeString($5L))",
                     typeMapper.getClassName(type),
                     resultVarName,
                     typeMapper.getClassName(type).box(),
                     RUNTIME_VAR_NAME,
-                    paramsVarName,
-                    paramId);
+                    paramValue);
         }
         Optional<CodeBlock> complexDeserializer =
-                getComplexTypeStringDeserializer(type, typeMapper, resultVarName, paramsVarName, paramId);
+                getComplexTypeStringDeserializer(type, typeMapper, resultVarName, paramValue);
         if (complexDeserializer.isPresent()) {
             return complexDeserializer.get();
         }
         return CodeBlocks.statement(
-                "$1T $2N = $3N.plainSerDe().$4L($5N.get($6S))",
+                "$1T $2N = $3N.plainSerDe().$4L($5L)",
                 typeMapper.getClassName(type),
                 resultVarName,
                 RUNTIME_VAR_NAME,
                 deserializeFunctionName(type),
-                paramsVarName,
-                paramId);
+                paramValue);
     }
 
     /**
@@ -805,7 +819,7 @@ final class UndertowServiceHandlerGenerator {
      * types and external imports.
      */
     private Optional<CodeBlock> getComplexTypeStringDeserializer(
-            Type type, TypeMapper typeMapper, String resultVarName, String paramsVarName, String paramId) {
+            Type type, TypeMapper typeMapper, String resultVarName, CodeBlock paramValue) {
         return type.accept(new DefaultTypeVisitor<Optional<String>>() {
                     @Override
                     public Optional<String> visitExternal(ExternalReference _value) {
@@ -843,13 +857,12 @@ final class UndertowServiceHandlerGenerator {
                     }
                 })
                 .map(functionName -> CodeBlocks.statement(
-                        "$1T $2N = $3N.plainSerDe().$4L($5N.get($6S), $7T::valueOf)",
+                        "$1T $2N = $3N.plainSerDe().$4L($5L, $6T::valueOf)",
                         typeMapper.getClassName(type),
                         resultVarName,
                         RUNTIME_VAR_NAME,
                         functionName,
-                        paramsVarName,
-                        paramId,
+                        paramValue,
                         typeMapper.getClassName(getComplexType(type)).box()));
     }
 
@@ -0,0 +1,204 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import io.undertow.util.HeaderValues;
+
+/**
+ * Allocation-free parser for the {@code Accept} header, see
+ * <a href="https://tools.ietf.org/html/rfc7231#section-5.3.2">RFC 7231 section 5.3.2</a>, which also supports
+ * content codings from the {@code Accept-Encoding} header. Header values are scanned
+ * in place for the media range which most specifically matches a given media type. The result is packed into an
+ * {@code int} which encodes the specificity, weight, and position of the matching range.
+ *
+ * <p>Quoted parameter values containing commas or semicolons are not supported, and malformed {@code q} weights are
+ * ignored rather than rejected.
+ *
+ * <p>Package private internal API.
+ */
+final class AcceptHeader {
+
+    /** Result of {@link #match(HeaderValues, String)} when no media range matches the media type. */
+    static final int NO_MATCH = -1;
+
+    /** Maximum {@link #quality(int) quality}, the {@code q=1} weight in thousandths. */
+    static final int MAX_QUALITY = 1000;
+
+    private static final int MATCH_ANY = 1;
+    private static final int MATCH_SUBTYPE_WILDCARD = 2;
+    private static final int MATCH_EXACT = 3;
+
+    private static final int SPECIFICITY_SHIFT = 28;
+    private static final int QUALITY_SHIFT = 16;
+    private static final int QUALITY_MASK = 0x3FF;
+    private static final int POSITION_MASK = 0xFFFF;
+
+    private AcceptHeader() {}
+
+    /**
+     * Finds the most specific media range from {@code acceptValues} which matches {@code mediaType}, for example
+     * {@code application/json} is matched by {@code application/json}, {@code application/*} and {@code *}{@code /*}
+     * in decreasing order of specificity. Returns {@link #NO_MATCH} if no range matches.
+     */
+    static int match(HeaderValues acceptValues, String mediaType) {
+        int typeLength = mediaType.indexOf('/');
+        int best = NO_MATCH;
+        int position = 0;
+        for (int i = 0; i < acceptValues.size(); i++) {
+            String value = acceptValues.get(i);
+            int start = 0;
+            while (start < value.length()) {
+                int end = indexOf(value, ',', start, value.length());
+                int match = matchRange(value, start, end, mediaType, typeLength, position++);
+                // The first of equally specific ranges applies
+                if (match != NO_MATCH && (best == NO_MATCH || specificity(match) > specificity(best))) {
+                    best = match;
+                }
+                start = end + 1;
+            }
+        }
+        return best;
+    }
+
+    /** Weight of a {@link #match} result in thousandths, zero if the media type is not acceptable. */
+    static int quality(int match) {
+        return match == NO_MATCH ? 0 : (match >>> QUALITY_SHIFT) & QUALITY_MASK;
+    }
+
+    /** Returns true if the media type was named explicitly, rather than matched using a wildcard. */
+    static boolean isExact(int match) {
+        return match != NO_MATCH && specificity(match) == MATCH_EXACT;
+    }
+
+    /** Index of the matching range in the order sent by the client, lower values appear first. */
+    static int position(int match) {
+        return match == NO_MATCH ? POSITION_MASK : match & POSITION_MASK;
+    }
+
+    private static int specificity(int match) {
+        return match >>> SPECIFICITY_SHIFT;
+    }
+
+    private static int matchRange(String value, int start, int end, String mediaType, int typeLength, int position) {
+        int rangeStart = skipWhitespace(value, start, end);
+        int parametersStart = indexOf(value, ';', rangeStart, end);
+        int rangeEnd = trimWhitespace(value, rangeStart, parametersStart);
+        int specificity = specificity(value, rangeStart, rangeEnd, mediaType, typeLength);
+        if (specificity == 0) {
+            return NO_MATCH;
+        }
+        return (specificity << SPECIFICITY_SHIFT)
+                | (parseQuality(value, parametersStart, end) << QUALITY_SHIFT)
+                | Math.min(position, POSITION_MASK);
+    }
+
+    private static int specificity(String value, int rangeStart, int rangeEnd, String mediaType, int typeLength) {
+        int length = rangeEnd - rangeStart;
+        if (length == 3 && value.startsWith("*/*", rangeStart)) {
+            return MATCH_ANY;
+        }
+        // Accept-Encoding uses the same syntax with a single '*' wildcard
+        if (length == 1 && typeLength < 0 && value.charAt(rangeStart) == '*') {
+            return MATCH_ANY;
+        }
+        if (typeLength > 0
+                && length == typeLength + 2
+                && value.charAt(rangeStart + typeLength) == '/'
+                && value.charAt(rangeEnd - 1) == '*'
+                && value.regionMatches(true, rangeStart, mediaType, 0, typeLength)) {
+            return MATCH_SUBTYPE_WILDCARD;
+        }
+        if (length == mediaType.length() && value.regionMatches(true, rangeStart, mediaType, 0, length)) {
+            return MATCH_EXACT;
+        }
+        return 0;
+    }
+
+    /** Finds the {@code q} parameter between the first parameter separator and {@code end}. */
+    private static int parseQuality(String value, int parametersStart, int end) {
+        int index = parametersStart;
+        while (index < end) {
+            int parameterStart = skipWhitespace(value, index + 1, end);
+            int parameterEnd = indexOf(value, ';', parameterStart, end);
+            if (parameterEnd - parameterStart >= 2
+                    && (value.charAt(parameterStart) == 'q' || value.charAt(parameterStart) == 'Q')
+                    && value.charAt(parameterStart + 1) == '=') {
+                int valueEnd = trimWhitespace(value, parameterStart, parameterEnd);
+                return parseQualityValue(value, parameterStart + 2, valueEnd);
+            }
+            index = parameterEnd;
+        }
+        return MAX_QUALITY;
+    }
+
+    /** Parses {@code qvalue = ( "0" [ "." 0*3DIGIT ] ) / ( "1" [ "." 0*3("0") ] )} in thousandths. */
+    private static int parseQualityValue(String value, int start, int end) {
+        int length = end - start;
+        if (length < 1 || length > 5) {
+            return MAX_QUALITY;
+        }
+        char first = value.charAt(start);
+        if (first != '0' && first != '1') {
+            return MAX_QUALITY;
+        }
+        int quality = (first - '0') * MAX_QUALITY;
+        if (length > 1) {
+            if (value.charAt(start + 1) != '.') {
+                return MAX_QUALITY;
+            }
+            int scale = 100;
+            for (int i = start + 2; i < end; i++) {
+                char digit = value.charAt(i);
+                if (digit < '0' || digit > '9') {
+                    return MAX_QUALITY;
+                }
+                quality += (digit - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return Math.min(quality, MAX_QUALITY);
+    }
+
+    private static int indexOf(String value, char character, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == character) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int skipWhitespace(String value, int start, int end) {
+        int index = start;
+        while (index < end && isWhitespace(value.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int trimWhitespace(String value, int start, int end) {
+        int index = end;
+        while (index > start && isWhitespace(value.charAt(index - 1))) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(char character) {
+        return character == ' ' || character == '\t';
+    }
+}
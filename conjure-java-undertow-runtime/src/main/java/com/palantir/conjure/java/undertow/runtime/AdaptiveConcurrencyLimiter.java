@@ -0,0 +1,162 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.palantir.conjure.java.api.errors.QosException;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.ExceptionHandler;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@link EndpointHandlerWrapper} which limits the number of concurrent requests to each endpoint. The limit adapts
+ * to the latency of the wrapped handler, measured until the exchange completes: it grows while latency is stable and
+ * shrinks as requests begin to queue, or when the endpoint responds with {@code 429} or {@code 503}. Requests over
+ * the limit fail fast with a {@link QosException#throttle(Duration) 429} response whose {@code Retry-After} is
+ * derived from the observed latency, rather than waiting in an unbounded worker queue.
+ *
+ * <p>Install using {@link ConjureHandler.Builder#addWrapperBeforeBlocking(EndpointHandlerWrapper)} so that rejected
+ * requests are not dispatched to the blocking executor. Requests rejected on the IO thread receive a {@code 429}
+ * response without a body, as written by {@link ConjureExceptions}, directly from the IO thread so that an overloaded
+ * worker pool is not used to reject requests.
+ */
+public final class AdaptiveConcurrencyLimiter implements EndpointHandlerWrapper {
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final ExceptionHandler exceptionHandler;
+
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.exceptionHandler = builder.exceptionHandler;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Optional<HttpHandler> wrap(Endpoint endpoint) {
+        return Optional.of(new LimitedHandler(
+                endpoint.handler(), new GradientLimit(initialLimit, minLimit, maxLimit), exceptionHandler));
+    }
+
+    private static final class LimitedHandler implements HttpHandler {
+
+        private final HttpHandler next;
+        private final GradientLimit limit;
+        private final ExceptionHandler exceptionHandler;
+
+        LimitedHandler(HttpHandler next, GradientLimit limit, ExceptionHandler exceptionHandler) {
+            this.next = next;
+            this.limit = limit;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            if (!limit.tryAcquire()) {
+                reject(exchange);
+                return;
+            }
+            long startNanos = System.nanoTime();
+            exchange.addExchangeCompleteListener(SafeExchangeCompletionListener.of(completed -> limit.release(
+                    System.nanoTime() - startNanos, isOverloaded(completed.getStatusCode()))));
+            next.handleRequest(exchange);
+        }
+
+        private void reject(HttpServerExchange exchange) {
+            Duration retryAfter = limit.retryAfter();
+            if (exchange.isInIoThread()) {
+                // The exception handler may use blocking IO, which is not permitted on the IO thread
+                exchange.setStatusCode(StatusCodes.TOO_MANY_REQUESTS);
+                exchange.getResponseHeaders().put(Headers.RETRY_AFTER, Long.toString(retryAfter.getSeconds()));
+                exchange.endExchange();
+            } else {
+                exceptionHandler.handle(exchange, QosException.throttle(retryAfter));
+            }
+        }
+
+        private static boolean isOverloaded(int statusCode) {
+            return statusCode == StatusCodes.TOO_MANY_REQUESTS || statusCode == StatusCodes.SERVICE_UNAVAILABLE;
+        }
+    }
+
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private ExceptionHandler exceptionHandler = ConjureExceptions.INSTANCE;
+
+        private Builder() {}
+
+        /** Concurrency limit applied to each endpoint before any latency has been observed. Defaults to 20. */
+        @CanIgnoreReturnValue
+        public Builder initialLimit(int value) {
+            Preconditions.checkArgument(value > 0, "initialLimit must be positive", SafeArg.of("initialLimit", value));
+            initialLimit = value;
+            return this;
+        }
+
+        /** Lower bound of the adaptive limit. Defaults to 1. */
+        @CanIgnoreReturnValue
+        public Builder minLimit(int value) {
+            Preconditions.checkArgument(value > 0, "minLimit must be positive", SafeArg.of("minLimit", value));
+            minLimit = value;
+            return this;
+        }
+
+        /** Upper bound of the adaptive limit. Defaults to 1000. */
+        @CanIgnoreReturnValue
+        public Builder maxLimit(int value) {
+            Preconditions.checkArgument(value > 0, "maxLimit must be positive", SafeArg.of("maxLimit", value));
+            maxLimit = value;
+            return this;
+        }
+
+        /**
+         * Writes the {@code 429} response for requests which are rejected on a blocking thread, when the limiter is
+         * installed after the request has been dispatched. Defaults to {@link ConjureExceptions}.
+         */
+        @CanIgnoreReturnValue
+        public Builder exceptionHandler(ExceptionHandler value) {
+            exceptionHandler = Preconditions.checkNotNull(value, "exceptionHandler is required");
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiter build() {
+            Preconditions.checkArgument(
+                    minLimit <= initialLimit && initialLimit <= maxLimit,
+                    "initialLimit must be between minLimit and maxLimit",
+                    SafeArg.of("minLimit", minLimit),
+                    SafeArg.of("initialLimit", initialLimit),
+                    SafeArg.of("maxLimit", maxLimit));
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
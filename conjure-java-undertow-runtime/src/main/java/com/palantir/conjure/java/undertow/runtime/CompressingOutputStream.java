@@ -0,0 +1,198 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compresses a response body using the {@code gzip} or {@code deflate} content coding. Bodies smaller than the
+ * threshold are held in memory and written without compression, the {@code Content-Encoding} header is only set
+ * once the threshold has been exceeded. The pending buffer grows as the body is written, so small bodies do not
+ * allocate the full threshold.
+ *
+ * <p>{@link #finish()} must be called once the body has been written, and {@link #close()} must always be called to
+ * return the {@link Deflater} and its buffer to the pool. The underlying stream is not closed.
+ *
+ * <p>Package private internal API.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+    private static final int INITIAL_PENDING_SIZE = 256;
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] GZIP_HEADER = {
+        (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final HttpServerExchange exchange;
+    private final OutputStream output;
+    private final ContentCoding coding;
+    private final DeflaterPool pool;
+    private final int threshold;
+    private byte[] pending = EMPTY;
+    private int pendingCount;
+
+    @Nullable
+    private Deflater deflater;
+
+    @Nullable
+    private CRC32 crc;
+
+    @Nullable
+    private byte[] buffer;
+
+    CompressingOutputStream(
+            HttpServerExchange exchange, OutputStream output, ContentCoding coding, DeflaterPool pool, int threshold) {
+        this.exchange = exchange;
+        this.output = output;
+        this.coding = coding;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (deflater == null) {
+            if (pendingCount < threshold) {
+                ensurePendingCapacity(pendingCount + 1);
+                pending[pendingCount++] = (byte) value;
+                return;
+            }
+            start();
+        }
+        // Once compressing, the pending buffer is empty and stages single bytes for the deflater
+        ensurePendingCapacity(1);
+        pending[0] = (byte) value;
+        deflate(pending, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (deflater == null) {
+            if (length <= threshold - pendingCount) {
+                ensurePendingCapacity(pendingCount + length);
+                System.arraycopy(bytes, offset, pending, pendingCount, length);
+                pendingCount += length;
+                return;
+            }
+            start();
+        }
+        deflate(bytes, offset, length);
+    }
+
+    /** Completes the body, writing it uncompressed if the threshold was not reached. */
+    void finish() throws IOException {
+        Deflater current = deflater;
+        if (current == null) {
+            if (pendingCount > 0) {
+                output.write(pending, 0, pendingCount);
+                pendingCount = 0;
+            }
+            return;
+        }
+        current.finish();
+        while (!current.finished()) {
+            drain(current);
+        }
+        if (crc != null) {
+            writeIntLittleEndian((int) crc.getValue());
+            writeIntLittleEndian((int) current.getBytesRead());
+        }
+    }
+
+    /** Returns the {@link Deflater} and its buffer to the pool. */
+    @Override
+    public void close() {
+        Deflater current = deflater;
+        if (current != null) {
+            deflater = null;
+            pool.release(current);
+        }
+        byte[] currentBuffer = buffer;
+        if (currentBuffer != null) {
+            buffer = null;
+            pool.releaseBuffer(currentBuffer);
+        }
+    }
+
+    private void ensurePendingCapacity(int capacity) {
+        if (capacity > pending.length) {
+            int grown = Math.min(threshold, Math.max(INITIAL_PENDING_SIZE, pending.length * 2));
+            pending = Arrays.copyOf(pending, Math.max(capacity, grown));
+        }
+    }
+
+    private void start() throws IOException {
+        exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, coding.headerValue());
+        buffer = pool.acquireBuffer();
+        deflater = pool.acquire();
+        if (coding == ContentCoding.GZIP) {
+            crc = new CRC32();
+            output.write(GZIP_HEADER);
+        }
+        if (pendingCount > 0) {
+            deflate(pending, 0, pendingCount);
+            pendingCount = 0;
+        }
+    }
+
+    private void deflate(byte[] bytes, int offset, int length) throws IOException {
+        Deflater current = deflater;
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        }
+        current.setInput(bytes, offset, length);
+        while (!current.needsInput()) {
+            drain(current);
+        }
+    }
+
+    private void drain(Deflater current) throws IOException {
+        int length = current.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+        if (length > 0) {
+            output.write(buffer, 0, length);
+        }
+    }
+
+    private void writeIntLittleEndian(int value) throws IOException {
+        output.write(value & 0xff);
+        output.write((value >> 8) & 0xff);
+        output.write((value >> 16) & 0xff);
+        output.write((value >> 24) & 0xff);
+    }
+
+    enum ContentCoding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String headerValue;
+
+        ContentCoding(String headerValue) {
+            this.headerValue = headerValue;
+        }
+
+        String headerValue() {
+            return headerValue;
+        }
+    }
+}
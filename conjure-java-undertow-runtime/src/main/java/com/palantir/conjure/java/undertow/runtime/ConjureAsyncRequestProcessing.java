@@ -16,6 +16,7 @@
 
 package com.palantir.conjure.java.undertow.runtime;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -33,14 +34,15 @@ import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
+import io.undertow.util.SameThreadExecutor;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.xnio.XnioExecutor;
+import org.xnio.XnioIoThread;
 
 /**
  *
@@ -51,6 +53,8 @@ import org.xnio.XnioExecutor;
  *   <li>Any {@link ListenableFuture} may be registered for asynchronous request processing regardless of type, where
  *       it's executed, and what thread completes it.
  *   <li>All serialization and I/O occurs on the server task pool, matching synchronous conjure services.
+ *   <li>Futures completed on a server task pool thread, for example by another request, write their result on
+ *       that thread without dispatching again.
  * </ul>
  *
  * This requires us to move execution away from {@link ListenableFuture} callbacks as quickly as possible, because
@@ -84,12 +88,24 @@ final class ConjureAsyncRequestProcessing implements AsyncRequestProcessing {
 
     private final Duration timeout;
     private final ExceptionHandler exceptionHandler;
+    // Timeouts are sharded by IO thread, wheels are collected once they have no live timeouts and the thread exits
+    private final ConcurrentMap<XnioIoThread, TimeoutWheel> timeoutWheels =
+            new MapMaker().weakKeys().weakValues().makeMap();
 
     ConjureAsyncRequestProcessing(Duration timeout, ExceptionHandler exceptionHandler) {
         this.timeout = timeout;
         this.exceptionHandler = exceptionHandler;
     }
 
+    /** Number of async requests awaiting a result whose timeout has neither expired nor been cancelled. */
+    int liveTimeouts() {
+        int total = 0;
+        for (TimeoutWheel wheel : timeoutWheels.values()) {
+            total += wheel.liveTimeouts();
+        }
+        return total;
+    }
+
     @Override
     public <T> void register(
             ListenableFuture<T> future, ReturnValueWriter<T> returnValueWriter, HttpServerExchange exchange)
@@ -116,7 +132,13 @@ final class ConjureAsyncRequestProcessing implements AsyncRequestProcessing {
             // Optimization: write the completed result immediately without dispatching across threads.
             writeCompleteFuture(future, returnValueWriter, exchange);
         } else {
-            registerCallback(future, returnValueWriter, requestAsyncTimeout, exchange);
+            // Stop waiting once the client has given up on the request
+            RequestDeadline deadline = RequestDeadline.get(exchange);
+            registerCallback(
+                    future,
+                    returnValueWriter,
+                    deadline == null ? requestAsyncTimeout : deadline.limit(requestAsyncTimeout),
+                    exchange);
         }
     }
 
@@ -150,17 +172,17 @@ final class ConjureAsyncRequestProcessing implements AsyncRequestProcessing {
             exchange.addExchangeCompleteListener(COMPLETION_LISTENER);
         }
 
-        XnioExecutor.Key timeoutKey = exchange.getIoThread()
-                .executeAfter(
+        TimeoutWheel.Timeout timeout = timeoutWheels
+                .computeIfAbsent(exchange.getIoThread(), TimeoutWheel::new)
+                .schedule(
                         () -> {
                             // TIMED_OUT must be set prior to future.cancel, otherwise the FutureCallback
                             // may be invoked before TIMED_OUT is set/visible.
                             exchange.putAttachment(TIMED_OUT, Boolean.TRUE);
                             future.cancel(INTERRUPT_ON_CANCEL);
                         },
-                        requestAsyncTimeout.toMillis(),
-                        TimeUnit.MILLISECONDS);
-        future.addListener(timeoutKey::remove, DIRECT_EXECUTOR);
+                        requestAsyncTimeout.toNanos());
+        future.addListener(timeout::cancel, DIRECT_EXECUTOR);
         // Dispatch the registration task, this accomplishes two things:
         // 1. Puts the exchange into a 'dispatched' state, otherwise the request will be terminated when
         //    the endpoint HttpHandler returns. See Connectors.executeRootHandler for more information.
@@ -168,25 +190,14 @@ final class ConjureAsyncRequestProcessing implements AsyncRequestProcessing {
         //    after this Endpoints HttpHandler returns. Otherwise an unlucky future could race
         //    HttpServerExchange.isInCall transitioning from true -> false, causing hte dispatch task not
         //    to execute.
-        DeferredTracer tracer = new DeferredTracer("Undertow: Async Result");
-        exchange.dispatch(() -> Futures.addCallback(
-                future,
-                new FutureCallback<T>() {
-                    @Override
-                    public void onSuccess(@Nullable T result) {
-                        exchange.dispatch(
-                                wrapCallback(_serverExchange -> returnValueWriter.write(result, exchange), tracer));
-                    }
-
-                    @Override
-                    public void onFailure(Throwable throwable) {
-                        exchange.dispatch(wrapCallback(
-                                serverExchange -> exceptionHandler.handle(
-                                        serverExchange, getThrowable(serverExchange, throwable, requestAsyncTimeout)),
-                                tracer));
-                    }
-                },
-                DIRECT_EXECUTOR));
+        // Endpoints are normally invoked on the server task pool, in which case the task runs on the current
+        // thread once the handler returns rather than hopping to another task pool thread.
+        Registration<T> registration = new Registration<>(future, returnValueWriter, requestAsyncTimeout, exchange);
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(registration);
+        } else {
+            exchange.dispatch(SameThreadExecutor.INSTANCE, registration);
+        }
     }
 
     /**
@@ -211,4 +222,65 @@ final class ConjureAsyncRequestProcessing implements AsyncRequestProcessing {
             return null;
         });
     }
+
+    /**
+     * Registers the future callback once the endpoint handler has returned. Results of futures which complete while
+     * the callback is being registered are written directly on the registration thread, any other completion is
+     * dispatched to the server task pool.
+     */
+    private final class Registration<T> implements Runnable, FutureCallback<T> {
+        private final ListenableFuture<T> future;
+        private final ReturnValueWriter<T> returnValueWriter;
+        private final Duration requestAsyncTimeout;
+        private final HttpServerExchange exchange;
+        private final DeferredTracer tracer = new DeferredTracer("Undertow: Async Result");
+        // Set only while registering. Threads completing the future concurrently observe either null or the
+        // registration thread, neither of which is their own thread.
+        @Nullable
+        private Thread registrationThread;
+
+        Registration(
+                ListenableFuture<T> future,
+                ReturnValueWriter<T> returnValueWriter,
+                Duration requestAsyncTimeout,
+                HttpServerExchange exchange) {
+            this.future = future;
+            this.returnValueWriter = returnValueWriter;
+            this.requestAsyncTimeout = requestAsyncTimeout;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void run() {
+            registrationThread = Thread.currentThread();
+            try {
+                Futures.addCallback(future, this, DIRECT_EXECUTOR);
+            } finally {
+                registrationThread = null;
+            }
+        }
+
+        @Override
+        public void onSuccess(@Nullable T result) {
+            dispatchCompletion(wrapCallback(_serverExchange -> returnValueWriter.write(result, exchange), tracer));
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            dispatchCompletion(wrapCallback(
+                    serverExchange -> exceptionHandler.handle(
+                            serverExchange, getThrowable(serverExchange, throwable, requestAsyncTimeout)),
+                    tracer));
+        }
+
+        private void dispatchCompletion(HttpHandler handler) {
+            if (Thread.currentThread() == registrationThread) {
+                // The registration task is a server task which has not yet returned, so the result is written
+                // without dispatching again.
+                exchange.dispatch(SameThreadExecutor.INSTANCE, handler);
+            } else {
+                exchange.dispatch(handler);
+            }
+        }
+    }
 }
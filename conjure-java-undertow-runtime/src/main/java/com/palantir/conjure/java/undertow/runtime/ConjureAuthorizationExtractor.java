@@ -29,6 +29,7 @@ import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import java.util.Optional;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.slf4j.MDC;
 
 /**
@@ -43,6 +44,7 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
     private static final String USER_ID_KEY = "userId";
     private static final String SESSION_ID_KEY = "sessionId";
     private static final String TOKEN_ID_KEY = "tokenId";
+    private static final String BEARER_PREFIX = "Bearer ";
     private static Consumer<String> sessionIdSetter = sessionId -> MDC.put(SESSION_ID_KEY, sessionId);
     private static Consumer<String> tokenIdSetter = tokenId -> MDC.put(TOKEN_ID_KEY, tokenId);
     private static final ErrorType MISSING_CREDENTIAL_ERROR_TYPE =
@@ -52,8 +54,16 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
 
     private final PlainSerDe plainSerDe;
 
+    @Nullable
+    private final JsonWebTokenCache jwtCache;
+
     ConjureAuthorizationExtractor(PlainSerDe plainSerDe) {
+        this(plainSerDe, null);
+    }
+
+    ConjureAuthorizationExtractor(PlainSerDe plainSerDe, @Nullable JsonWebTokenCache jwtCache) {
         this.plainSerDe = plainSerDe;
+        this.jwtCache = jwtCache;
     }
 
     /**
@@ -77,6 +87,7 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
             throw new ServiceException(MISSING_CREDENTIAL_ERROR_TYPE);
         }
         try {
+            // The cookie value is the token, validated once by BearerToken.valueOf as for the Authorization header
             return setState(exchange, plainSerDe.deserializeBearerToken(cookie.getValue()));
         } catch (RuntimeException e) {
             throw new ServiceException(MALFORMED_CREDENTIAL_ERROR_TYPE, e);
@@ -88,8 +99,10 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
      * populates the SLF4J {@link MDC} with user id, session id, and token id extracted from the JWT. This is
      * best-effort and does not throw an exception in case any of these steps fail.
      */
-    private static BearerToken setState(HttpServerExchange exchange, BearerToken token) {
-        Optional<UnverifiedJsonWebToken> parsedJwt = UnverifiedJsonWebToken.tryParse(token.getToken());
+    private BearerToken setState(HttpServerExchange exchange, BearerToken token) {
+        Optional<UnverifiedJsonWebToken> parsedJwt = jwtCache == null
+                ? UnverifiedJsonWebToken.tryParse(token.getToken())
+                : jwtCache.get(token.getToken());
         exchange.putAttachment(Attachments.UNVERIFIED_JWT, parsedJwt);
         if (parsedJwt.isPresent()) {
             UnverifiedJsonWebToken jwt = parsedJwt.get();
@@ -100,7 +113,7 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
         return token;
     }
 
-    private static AuthHeader setState(HttpServerExchange exchange, AuthHeader authHeader) {
+    private AuthHeader setState(HttpServerExchange exchange, AuthHeader authHeader) {
         setState(exchange, authHeader.getBearerToken());
         return authHeader;
     }
@@ -115,8 +128,13 @@ final class ConjureAuthorizationExtractor implements AuthorizationExtractor {
         if (authorization.size() != 1) {
             throw new ServiceException(MALFORMED_CREDENTIAL_ERROR_TYPE);
         }
+        String value = authorization.get(0);
         try {
-            return AuthHeader.valueOf(authorization.get(0));
+            // BearerToken.valueOf validates the token, values without one are parsed by AuthHeader to produce a
+            // descriptive failure
+            return value.length() > BEARER_PREFIX.length() && value.startsWith(BEARER_PREFIX)
+                    ? AuthHeader.of(BearerToken.valueOf(value.substring(BEARER_PREFIX.length())))
+                    : AuthHeader.valueOf(value);
         } catch (RuntimeException e) {
             throw new ServiceException(MALFORMED_CREDENTIAL_ERROR_TYPE, e);
         }
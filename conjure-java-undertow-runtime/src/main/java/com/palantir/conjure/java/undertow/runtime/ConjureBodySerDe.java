@@ -16,40 +16,56 @@
 
 package com.palantir.conjure.java.undertow.runtime;
 
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.palantir.conjure.java.undertow.lib.BinaryResponseBody;
 import com.palantir.conjure.java.undertow.lib.BodySerDe;
 import com.palantir.conjure.java.undertow.lib.Deserializer;
+import com.palantir.conjure.java.undertow.lib.FileBinaryResponseBody;
 import com.palantir.conjure.java.undertow.lib.Serializer;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.conjure.java.undertow.runtime.NonBlockingRequestBodyHandler.BufferedRequestBody;
 import com.palantir.logsafe.Preconditions;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
+import com.palantir.logsafe.exceptions.SafeIllegalStateException;
 import com.palantir.logsafe.logger.SafeLogger;
 import com.palantir.logsafe.logger.SafeLoggerFactory;
 import com.palantir.tracing.CloseableTracer;
 import com.palantir.tracing.TagTranslator;
 import com.palantir.tracing.Tracer;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import io.undertow.util.Protocols;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PushbackInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
 import org.xnio.IoUtils;
+import org.xnio.channels.Channels;
+import org.xnio.channels.StreamSinkChannel;
 
 /** Package private internal API. */
 final class ConjureBodySerDe implements BodySerDe {
 
     private static final SafeLogger log = SafeLoggerFactory.get(ConjureBodySerDe.class);
     private static final String BINARY_CONTENT_TYPE = "application/octet-stream";
-    private static final Splitter ACCEPT_VALUE_SPLITTER =
-            Splitter.on(',').trimResults().omitEmptyStrings();
 
     private final List<Encoding> encodings;
+    private final ContentNegotiation negotiation;
+    private final NonBlockingEncoding[] nonBlockingEncodings;
+    private final int maxBufferedResponseBytes;
+    private final RequestDecompression decompression;
 
     /**
      * Selects the first (based on input order) of the provided encodings that
@@ -57,20 +73,57 @@ final class ConjureBodySerDe implements BodySerDe {
      * request, or the first serializer if no such serializer can be found.
      */
     ConjureBodySerDe(List<Encoding> encodings) {
+        this(encodings, 0, RequestDecompression.DEFAULT_MAX_DECOMPRESSED_BYTES);
+    }
+
+    /**
+     * Creates a new {@link ConjureBodySerDe} which buffers serialized responses up to {@code maxBufferedResponseBytes}
+     * in pooled buffers to send them with a {@code Content-Length}, see {@link PooledResponseOutputStream}. Buffering
+     * is disabled when the limit is zero. Compressed request bodies which exceed {@code maxDecompressedRequestBytes}
+     * once decoded are rejected, see {@link RequestDecompression}.
+     */
+    ConjureBodySerDe(List<Encoding> encodings, int maxBufferedResponseBytes, long maxDecompressedRequestBytes) {
+        Preconditions.checkArgument(maxBufferedResponseBytes >= 0, "maxBufferedResponseBytes must not be negative");
         // Defensive copy
         this.encodings =
                 encodings.stream().map(LazilyInitializedEncoding::new).collect(ImmutableList.toImmutableList());
         Preconditions.checkArgument(encodings.size() > 0, "At least one Encoding is required");
+        this.negotiation = new ContentNegotiation(this.encodings);
+        // Indexed by encoding, null when the encoding does not support non-blocking parsing
+        this.nonBlockingEncodings = this.encodings.stream()
+                .map(encoding -> encoding instanceof NonBlockingEncoding
+                                && ((NonBlockingEncoding) encoding).supportsNonBlockingParsing()
+                        ? (NonBlockingEncoding) encoding
+                        : null)
+                .toArray(NonBlockingEncoding[]::new);
+        this.maxBufferedResponseBytes = maxBufferedResponseBytes;
+        this.decompression = new RequestDecompression(maxDecompressedRequestBytes);
+    }
+
+    /**
+     * Wraps a handler to read request bodies on the IO thread without blocking, see
+     * {@link NonBlockingRequestBodyHandler}, buffering at most {@code maxBytes} of each body. Empty if none of the
+     * configured encodings support non-blocking parsing.
+     */
+    Optional<HttpHandler> nonBlockingRequestBodyHandler(HttpHandler next, long maxBytes) {
+        return Arrays.stream(nonBlockingEncodings).anyMatch(Objects::nonNull)
+                ? Optional.of(new NonBlockingRequestBodyHandler(next, negotiation, nonBlockingEncodings, maxBytes))
+                : Optional.empty();
+    }
+
+    /** Cache of negotiated encodings shared by all serializers and deserializers. */
+    ContentNegotiation negotiation() {
+        return negotiation;
     }
 
     @Override
     public <T> Serializer<T> serializer(TypeMarker<T> token) {
-        return new EncodingSerializerRegistry<>(encodings, token);
+        return new EncodingSerializerRegistry<>(negotiation, encodings, token, maxBufferedResponseBytes);
     }
 
     @Override
     public <T> Deserializer<T> deserializer(TypeMarker<T> token) {
-        return new EncodingDeserializerRegistry<>(encodings, token);
+        return new EncodingDeserializerRegistry<>(negotiation, decompression, encodings, token);
     }
 
     @Override
@@ -79,12 +132,45 @@ final class ConjureBodySerDe implements BodySerDe {
         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, BINARY_CONTENT_TYPE);
         Tracer.fastStartSpan(TracedEncoding.SERIALIZE_OPERATION);
         try {
-            value.write(exchange.getOutputStream());
+            if (value instanceof FileBinaryResponseBody) {
+                transferFile((FileBinaryResponseBody) value, exchange);
+            } else {
+                value.write(exchange.getOutputStream());
+            }
         } finally {
             Tracer.fastCompleteSpan(SerializeBinaryTagTranslator.INSTANCE, SerializeBinaryTagTranslator.INSTANCE);
         }
     }
 
+    /**
+     * Sends a file region using a zero-copy transfer from the file to the response channel, which uses sendfile
+     * where supported, with an exact {@code Content-Length}. The file is opened before the response channel is
+     * acquired so that missing files produce a standard conjure error. Range requests are applied to the region when
+     * enabled for the endpoint, see {@link RangeRequests}.
+     */
+    private static void transferFile(FileBinaryResponseBody body, HttpServerExchange exchange) throws IOException {
+        try (FileChannel file = FileChannel.open(body.path(), StandardOpenOption.READ)) {
+            long offset = body.offset();
+            long length = body.resolveLength(file.size());
+            if (RangeRequests.isEnabled(exchange)) {
+                RangeRequests.ByteRange range = RangeRequests.select(
+                        exchange, length, Files.getLastModifiedTime(body.path()).toMillis());
+                offset += range.start();
+                length = range.length();
+            }
+            exchange.setResponseContentLength(length);
+            StreamSinkChannel channel = exchange.getResponseChannel();
+            if (channel == null) {
+                // The response channel has already been acquired, fall back to the blocking output stream.
+                FileBinaryResponseBody.of(body.path(), offset, length).write(exchange.getOutputStream());
+                return;
+            }
+            Channels.transferBlocking(channel, file, offset, length);
+            channel.shutdownWrites();
+            Channels.flushBlocking(channel);
+        }
+    }
+
     @Override
     public InputStream deserializeInputStream(HttpServerExchange exchange) {
         String contentType = getContentType(exchange);
@@ -97,14 +183,20 @@ final class ConjureBodySerDe implements BodySerDe {
 
     private static final class EncodingSerializerRegistry<T> implements Serializer<T> {
 
-        private final EncodingSerializerContainer<T> defaultEncoding;
+        private final ContentNegotiation negotiation;
         private final List<EncodingSerializerContainer<T>> encodings;
-
-        EncodingSerializerRegistry(List<Encoding> encodings, TypeMarker<T> token) {
+        private final int maxBufferedResponseBytes;
+
+        EncodingSerializerRegistry(
+                ContentNegotiation negotiation,
+                List<Encoding> encodings,
+                TypeMarker<T> token,
+                int maxBufferedResponseBytes) {
+            this.negotiation = negotiation;
             this.encodings = encodings.stream()
                     .map(encoding -> new EncodingSerializerContainer<>(encoding, token))
                     .collect(ImmutableList.toImmutableList());
-            this.defaultEncoding = this.encodings.get(0);
+            this.maxBufferedResponseBytes = maxBufferedResponseBytes;
         }
 
         @Override
@@ -113,28 +205,34 @@ final class ConjureBodySerDe implements BodySerDe {
             safelyDrainRequestBody(exchange);
             EncodingSerializerContainer<T> container = getResponseSerializer(exchange);
             exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, container.encoding.getContentType());
-            container.serializer.serialize(value, exchange.getOutputStream());
+            if (maxBufferedResponseBytes <= 0) {
+                serialize(container, value, exchange, exchange.getOutputStream());
+                return;
+            }
+            try (PooledResponseOutputStream output =
+                    new PooledResponseOutputStream(exchange, maxBufferedResponseBytes)) {
+                serialize(container, value, exchange, output);
+                output.commit();
+            }
+        }
+
+        private static <T> void serialize(
+                EncodingSerializerContainer<T> container, T value, HttpServerExchange exchange, OutputStream output)
+                throws IOException {
+            CompressingOutputStream compressing = ResponseCompression.compress(exchange, output);
+            if (compressing == null) {
+                container.serializer.serialize(value, output);
+                return;
+            }
+            try (CompressingOutputStream compressed = compressing) {
+                container.serializer.serialize(value, compressed);
+                compressed.finish();
+            }
         }
 
         /** Returns the {@link EncodingSerializerContainer} to use for the exchange response. */
-        @SuppressWarnings("ForLoopReplaceableByForEach") // performance sensitive code avoids iterator allocation
         EncodingSerializerContainer<T> getResponseSerializer(HttpServerExchange exchange) {
-            HeaderValues acceptValues = exchange.getRequestHeaders().get(Headers.ACCEPT);
-            if (acceptValues != null) {
-                // This implementation prefers the client "Accept" order
-                for (int i = 0; i < acceptValues.size(); i++) {
-                    for (String acceptValue : ACCEPT_VALUE_SPLITTER.split(acceptValues.get(i))) {
-                        for (int j = 0; j < encodings.size(); j++) {
-                            EncodingSerializerContainer<T> container = encodings.get(j);
-                            if (container.encoding.supportsContentType(acceptValue)) {
-                                return container;
-                            }
-                        }
-                    }
-                }
-            }
-            // Fall back to the default
-            return defaultEncoding;
+            return encodings.get(negotiation.responseEncoding(exchange.getRequestHeaders().get(Headers.ACCEPT)));
         }
     }
 
@@ -151,35 +249,74 @@ final class ConjureBodySerDe implements BodySerDe {
 
     private static final class EncodingDeserializerRegistry<T> implements Deserializer<T> {
 
+        private final ContentNegotiation negotiation;
+        private final RequestDecompression decompression;
         private final List<EncodingDeserializerContainer<T>> encodings;
         private final boolean optionalType;
         private final TypeMarker<T> marker;
 
-        EncodingDeserializerRegistry(List<Encoding> encodings, TypeMarker<T> token) {
+        EncodingDeserializerRegistry(
+                ContentNegotiation negotiation,
+                RequestDecompression decompression,
+                List<Encoding> encodings,
+                TypeMarker<T> token) {
+            this.negotiation = negotiation;
+            this.decompression = decompression;
+            this.optionalType = TypeMarkers.isOptional(token);
             this.encodings = encodings.stream()
-                    .map(encoding -> new EncodingDeserializerContainer<>(encoding, token))
+                    .map(encoding -> new EncodingDeserializerContainer<>(encoding, token, optionalType))
                     .collect(ImmutableList.toImmutableList());
-            this.optionalType = TypeMarkers.isOptional(token);
             this.marker = token;
         }
 
         @Override
         public T deserialize(HttpServerExchange exchange) throws IOException {
-            // If this deserializer is built for an optional root type, Optional<?>, OptionalInt, etc,
-            // and the incoming request body might be empty (does not have a content-length greater than zero)
-            // we must map from an empty request body to an empty optional.
-            // See https://github.com/palantir/conjure/blob/master/docs/spec/wire.md#23-body-parameter
-            if (optionalType && maybeEmptyBody(exchange)) {
-                return deserializeOptional(exchange);
+            BufferedRequestBody bufferedBody =
+                    exchange.removeAttachment(NonBlockingRequestBodyHandler.BUFFERED_REQUEST_BODY);
+            if (bufferedBody != null) {
+                return deserializeBuffered(exchange, bufferedBody);
+            }
+            InputStream body = exchange.getInputStream();
+            InputStream decoded = decompression.decode(exchange, body);
+            try {
+                // If this deserializer is built for an optional root type, Optional<?>, OptionalInt, etc,
+                // and the incoming request body might be empty (does not have a content-length greater than zero)
+                // we must map from an empty request body to an empty optional. The content-length of an encoded
+                // body says nothing about the length of the decoded body.
+                // See https://github.com/palantir/conjure/blob/master/docs/spec/wire.md#23-body-parameter
+                if (optionalType && (decoded != body || maybeEmptyBody(exchange))) {
+                    return deserializeOptional(exchange, decoded);
+                }
+                return deserializeInternal(exchange, decoded);
+            } finally {
+                if (decoded != body) {
+                    decoded.close();
+                }
+            }
+        }
+
+        private T deserializeBuffered(HttpServerExchange exchange, BufferedRequestBody bufferedBody)
+                throws IOException {
+            // The body has already been read on the IO thread, so empty bodies are detected without a blocking read.
+            if (optionalType && bufferedBody.isEmpty()) {
+                return TypeMarkers.getEmptyOptional(marker);
             }
-            return deserializeInternal(exchange, exchange.getInputStream());
+            EncodingDeserializerContainer<T> container = getRequestDeserializer(exchange);
+            return container.deserialize(bufferedBody);
         }
 
-        private T deserializeOptional(HttpServerExchange exchange) throws IOException {
+        private T deserializeOptional(HttpServerExchange exchange, InputStream body) throws IOException {
+            // Empty bodies are accepted without a supported Content-Type, so the encoding may only be used to detect
+            // the empty body from its first token when the Content-Type is supported.
+            String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+            int index = contentType == null ? ContentNegotiation.UNSUPPORTED : negotiation.requestEncoding(contentType);
+            if (index != ContentNegotiation.UNSUPPORTED && encodings.get(index).optionalDeserializer != null) {
+                return encodings.get(index).deserializeOptional(body);
+            }
             // If the first byte of the request stream is -1 (EOF) we return the empty optional type.
             // We cannot provide the empty stream to jackson because there is no content for jackson
             // to deserialize.
-            PushbackInputStream requestStream = new PushbackInputStream(exchange.getInputStream(), 1);
+            PushbackInputStream requestStream = new PushbackInputStream(body, 1);
             int firstByte = requestStream.read();
             if (firstByte == -1) {
                 return TypeMarkers.getEmptyOptional(marker);
@@ -201,14 +338,11 @@ final class ConjureBodySerDe implements BodySerDe {
         }
 
         /** Returns the {@link EncodingDeserializerContainer} to use to deserialize the request body. */
-        @SuppressWarnings("ForLoopReplaceableByForEach") // performance sensitive code avoids iterator allocation
         EncodingDeserializerContainer<T> getRequestDeserializer(HttpServerExchange exchange) {
             String contentType = getContentType(exchange);
-            for (int i = 0; i < encodings.size(); i++) {
-                EncodingDeserializerContainer<T> container = encodings.get(i);
-                if (container.encoding.supportsContentType(contentType)) {
-                    return container;
-                }
+            int index = negotiation.requestEncoding(contentType);
+            if (index != ContentNegotiation.UNSUPPORTED) {
+                return encodings.get(index);
             }
             throw FrameworkException.unsupportedMediaType(
                     "Unsupported Content-Type", SafeArg.of("Content-Type", contentType));
@@ -220,9 +354,51 @@ final class ConjureBodySerDe implements BodySerDe {
         private final Encoding encoding;
         private final Encoding.Deserializer<T> deserializer;
 
-        EncodingDeserializerContainer(Encoding encoding, TypeMarker<T> token) {
+        @Nullable
+        private final NonBlockingEncoding.BufferedDeserializer<T> bufferedDeserializer;
+
+        @Nullable
+        private final Encoding.Deserializer<T> optionalDeserializer;
+
+        private final ImmutableMap<String, String> tags;
+
+        EncodingDeserializerContainer(Encoding encoding, TypeMarker<T> token, boolean optionalType) {
             this.encoding = encoding;
             this.deserializer = TracedEncoding.wrap(encoding).deserializer(token);
+            this.bufferedDeserializer = encoding instanceof NonBlockingEncoding
+                            && ((NonBlockingEncoding) encoding).supportsNonBlockingParsing()
+                    ? ((NonBlockingEncoding) encoding).bufferedDeserializer(token)
+                    : null;
+            this.optionalDeserializer = optionalType
+                            && encoding instanceof OptionalBodyEncoding
+                            && ((OptionalBodyEncoding) encoding).supportsOptionalBodies()
+                    ? ((OptionalBodyEncoding) encoding).optionalDeserializer(token)
+                    : null;
+            this.tags =
+                    ImmutableMap.of("type", TracedEncoding.toString(token), "contentType", encoding.getContentType());
+        }
+
+        T deserializeOptional(InputStream input) throws IOException {
+            Tracer.fastStartSpan(TracedEncoding.DESERIALIZE_OPERATION);
+            try {
+                return optionalDeserializer.deserialize(input);
+            } finally {
+                Tracer.fastCompleteSpan(tags);
+            }
+        }
+
+        T deserialize(NonBlockingEncoding.BufferedTokens tokens) throws IOException {
+            if (bufferedDeserializer == null) {
+                throw new SafeIllegalStateException(
+                        "Request body was buffered by an encoding which does not support non-blocking parsing",
+                        SafeArg.of("contentType", encoding.getContentType()));
+            }
+            Tracer.fastStartSpan(TracedEncoding.DESERIALIZE_OPERATION);
+            try {
+                return bufferedDeserializer.deserialize(tokens);
+            } finally {
+                Tracer.fastCompleteSpan(tags);
+            }
         }
     }
 
@@ -230,7 +406,7 @@ final class ConjureBodySerDe implements BodySerDe {
      * Ensure the client isn't blocked sending additional data. It's very uncommon for this to be necessary, in most
      * cases exceptional responses are far below the 16k buffer threshold, not even considering socket buffers.
      */
-    private static void safelyDrainRequestBody(HttpServerExchange exchange) {
+    static void safelyDrainRequestBody(HttpServerExchange exchange) {
         // No need to impact http/2 which supports out-of-band responses.
         if ((Protocols.HTTP_1_1.equals(exchange.getProtocol()) || Protocols.HTTP_1_0.equals(exchange.getProtocol()))
                 && !exchange.isRequestComplete()) {
@@ -27,6 +27,7 @@ import com.palantir.logsafe.logger.SafeLoggerFactory;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import java.security.cert.Certificate;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
@@ -86,6 +87,12 @@ final class ConjureContexts implements Contexts {
             requestArgHandler.arg(exchange, arg);
         }
 
+        @Override
+        public Optional<Duration> timeRemaining() {
+            RequestDeadline deadline = RequestDeadline.get(exchange);
+            return deadline == null ? Optional.empty() : Optional.of(deadline.remaining());
+        }
+
         @Override
         public ImmutableList<Certificate> peerCertificates() {
             SSLSession sslSession = exchange.getConnection().getSslSession();
@@ -22,8 +22,7 @@ import com.palantir.conjure.java.api.errors.RemoteException;
 import com.palantir.conjure.java.api.errors.SerializableError;
 import com.palantir.conjure.java.api.errors.ServiceException;
 import com.palantir.conjure.java.undertow.lib.ExceptionHandler;
-import com.palantir.conjure.java.undertow.lib.Serializer;
-import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.logsafe.Preconditions;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.logger.SafeLogger;
 import com.palantir.logsafe.logger.SafeLoggerFactory;
@@ -33,8 +32,7 @@ import io.undertow.util.Headers;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
-import java.util.Optional;
+import java.util.Map;
 import java.util.function.Consumer;
 import org.xnio.IoUtils;
 
@@ -46,23 +44,38 @@ public enum ConjureExceptions implements ExceptionHandler {
     INSTANCE;
 
     private static final SafeLogger log = SafeLoggerFactory.get(ConjureExceptions.class);
-    // Exceptions should always be serialized using JSON
-    private static final Serializer<SerializableError> serializer =
-            new ConjureBodySerDe(Collections.singletonList(Encodings.json())).serializer(new TypeMarker<>() {});
+    // QoS responses and Errors are sent without a body
+    private static final ErrorBody NO_BODY = () -> {};
 
     @Override
     public void handle(HttpServerExchange exchange, Throwable throwable) {
+        handle(exchange, throwable, ErrorLogSampling.UNLIMITED);
+    }
+
+    /**
+     * Returns an {@link ExceptionHandler} which maps failures in the same way as {@link #INSTANCE}, but limits the
+     * rate at which failures are logged for each error name as configured by {@code sampling}.
+     */
+    public static ExceptionHandler withLogSampling(ErrorLogSampling sampling) {
+        Preconditions.checkNotNull(sampling, "sampling is required");
+        return (exchange, throwable) -> {
+            handle(exchange, throwable, sampling);
+            logSuppressed(sampling);
+        };
+    }
+
+    private static void handle(HttpServerExchange exchange, Throwable throwable, ErrorLogSampling sampling) {
         setFailure(exchange, throwable);
         if (throwable instanceof ServiceException) {
-            serviceException(exchange, (ServiceException) throwable);
+            serviceException(exchange, (ServiceException) throwable, sampling);
         } else if (throwable instanceof QosException) {
             qosException(exchange, (QosException) throwable);
         } else if (throwable instanceof RemoteException) {
-            remoteException(exchange, (RemoteException) throwable);
+            remoteException(exchange, (RemoteException) throwable, sampling);
         } else if (throwable instanceof IllegalArgumentException) {
-            illegalArgumentException(exchange, throwable);
+            illegalArgumentException(exchange, throwable, sampling);
         } else if (throwable instanceof FrameworkException) {
-            frameworkException(exchange, (FrameworkException) throwable);
+            frameworkException(exchange, (FrameworkException) throwable, sampling);
         } else if (throwable instanceof Error) {
             error(exchange, (Error) throwable);
         } else if (throwable instanceof IOException && !exchange.getConnection().isOpen()) {
@@ -71,20 +84,15 @@ public enum ConjureExceptions implements ExceptionHandler {
                     throwable);
         } else {
             ServiceException exception = new ServiceException(ErrorType.INTERNAL, throwable);
-            log(exception, throwable);
-            writeResponse(
-                    exchange,
-                    Optional.of(SerializableError.forException(exception)),
-                    exception.getErrorType().httpErrorCode());
+            log(exception, throwable, sampling);
+            writeResponse(exchange, exception, exception.getErrorType().httpErrorCode());
         }
     }
 
-    private static void serviceException(HttpServerExchange exchange, ServiceException exception) {
-        log(exception);
-        writeResponse(
-                exchange,
-                Optional.of(SerializableError.forException(exception)),
-                exception.getErrorType().httpErrorCode());
+    private static void serviceException(
+            HttpServerExchange exchange, ServiceException exception, ErrorLogSampling sampling) {
+        log(exception, exception, sampling);
+        writeResponse(exchange, exception, exception.getErrorType().httpErrorCode());
     }
 
     private static void qosException(HttpServerExchange exchange, QosException qosException) {
@@ -94,7 +102,7 @@ public enum ConjureExceptions implements ExceptionHandler {
         } else {
             log.debug("quality-of-service intervention", qosException);
         }
-        writeResponse(exchange, Optional.empty(), qosException.accept(QOS_EXCEPTION_STATUS_CODE));
+        writeResponse(exchange, qosException.accept(QOS_EXCEPTION_STATUS_CODE), NO_BODY);
     }
 
     /** Returns  true if {@link QosException} provides additional metadata and should be logged at {@code info}. */
@@ -117,54 +125,54 @@ public enum ConjureExceptions implements ExceptionHandler {
     // considered internal to *this* service rather than the originating service. This means in particular
     // that Conjure errors are defined only local to a given service and these error types don't
     // propagate through other services.
-    private static void remoteException(HttpServerExchange exchange, RemoteException remoteException) {
+    private static void remoteException(
+            HttpServerExchange exchange, RemoteException remoteException, ErrorLogSampling sampling) {
+        boolean shouldLog = sampling.tryAcquire(remoteException.getError().errorName());
         if (remoteException.getStatus() == 401 || remoteException.getStatus() == 403) {
-            log.info(
-                    "Encountered a remote exception",
-                    SafeArg.of("errorInstanceId", remoteException.getError().errorInstanceId()),
-                    SafeArg.of("errorName", remoteException.getError().errorName()),
-                    SafeArg.of("statusCode", remoteException.getStatus()),
-                    remoteException);
+            if (shouldLog) {
+                log.info(
+                        "Encountered a remote exception",
+                        SafeArg.of("errorInstanceId", remoteException.getError().errorInstanceId()),
+                        SafeArg.of("errorName", remoteException.getError().errorName()),
+                        SafeArg.of("statusCode", remoteException.getStatus()),
+                        remoteException);
+            }
 
+            SerializableError error = remoteException.getError();
             writeResponse(
                     exchange,
-                    Optional.of(SerializableError.builder()
-                            .errorCode(remoteException.getError().errorCode())
-                            .errorName(remoteException.getError().errorName())
-                            .errorInstanceId(remoteException.getError().errorInstanceId())
-                            .build()),
-                    remoteException.getStatus());
+                    remoteException.getStatus(),
+                    () -> ErrorResponseWriter.write(
+                            exchange, error.errorCode(), error.errorName(), error.errorInstanceId()));
         } else {
-            // log at WARN instead of ERROR because this indicates an issue in a remote server
-            log.warn(
-                    "Encountered a remote exception. Mapping to an internal error before propagating",
-                    SafeArg.of("errorInstanceId", remoteException.getError().errorInstanceId()),
-                    SafeArg.of("errorName", remoteException.getError().errorName()),
-                    SafeArg.of("statusCode", remoteException.getStatus()),
-                    remoteException);
+            if (shouldLog) {
+                // log at WARN instead of ERROR because this indicates an issue in a remote server
+                log.warn(
+                        "Encountered a remote exception. Mapping to an internal error before propagating",
+                        SafeArg.of("errorInstanceId", remoteException.getError().errorInstanceId()),
+                        SafeArg.of("errorName", remoteException.getError().errorName()),
+                        SafeArg.of("statusCode", remoteException.getStatus()),
+                        remoteException);
+            }
 
             ServiceException exception = new ServiceException(ErrorType.INTERNAL, remoteException);
-            writeResponse(
-                    exchange,
-                    Optional.of(SerializableError.forException(exception)),
-                    exception.getErrorType().httpErrorCode());
+            writeResponse(exchange, exception, exception.getErrorType().httpErrorCode());
         }
     }
 
-    private static void illegalArgumentException(HttpServerExchange exchange, Throwable throwable) {
+    private static void illegalArgumentException(
+            HttpServerExchange exchange, Throwable throwable, ErrorLogSampling sampling) {
         ServiceException exception = new ServiceException(ErrorType.INVALID_ARGUMENT, throwable);
-        log(exception, throwable);
-        writeResponse(
-                exchange,
-                Optional.of(SerializableError.forException(exception)),
-                exception.getErrorType().httpErrorCode());
+        log(exception, throwable, sampling);
+        writeResponse(exchange, exception, exception.getErrorType().httpErrorCode());
     }
 
-    private static void frameworkException(HttpServerExchange exchange, FrameworkException frameworkException) {
+    private static void frameworkException(
+            HttpServerExchange exchange, FrameworkException frameworkException, ErrorLogSampling sampling) {
         int statusCode = frameworkException.getStatusCode();
         ServiceException exception = new ServiceException(frameworkException.getErrorType(), frameworkException);
-        log(exception, frameworkException);
-        writeResponse(exchange, Optional.of(SerializableError.forException(exception)), statusCode);
+        log(exception, frameworkException, sampling);
+        writeResponse(exchange, exception, statusCode);
     }
 
     private static void error(HttpServerExchange exchange, Error error) {
@@ -173,20 +181,25 @@ public enum ConjureExceptions implements ExceptionHandler {
         log.error("Error handling request", error);
         // The writeResponse method terminates responses if data has already been sent to clients
         // do not interpret partial data as a full response.
-        writeResponse(exchange, Optional.empty(), ErrorType.INTERNAL.httpErrorCode());
+        writeResponse(exchange, ErrorType.INTERNAL.httpErrorCode(), NO_BODY);
+    }
+
+    private static void writeResponse(HttpServerExchange exchange, ServiceException exception, int statusCode) {
+        writeResponse(
+                exchange,
+                statusCode,
+                () -> ErrorResponseWriter.write(
+                        exchange, exception.getErrorType(), exception.getErrorInstanceId(), exception.getArgs()));
     }
 
-    private static void writeResponse(
-            HttpServerExchange exchange, Optional<SerializableError> maybeBody, int statusCode) {
+    private static void writeResponse(HttpServerExchange exchange, int statusCode, ErrorBody body) {
         // Do not attempt to write the failure if data has already been written
         if (!isResponseStarted(exchange)) {
             exchange.setStatusCode(statusCode);
-            if (maybeBody.isPresent()) {
-                try {
-                    serializer.serialize(maybeBody.get(), exchange);
-                } catch (IOException | RuntimeException e) {
-                    log.info("Failed to write error response", e);
-                }
+            try {
+                body.write();
+            } catch (IOException | RuntimeException e) {
+                log.info("Failed to write error response", e);
             }
         } else {
             // This prevents the server from sending the final null chunk, alerting
@@ -211,7 +224,11 @@ public enum ConjureExceptions implements ExceptionHandler {
         return false;
     }
 
-    private static void log(ServiceException serviceException, Throwable exceptionForLogging) {
+    private static void log(
+            ServiceException serviceException, Throwable exceptionForLogging, ErrorLogSampling sampling) {
+        if (!sampling.tryAcquire(serviceException.getErrorType().name())) {
+            return;
+        }
         if (serviceException.getErrorType().httpErrorCode() / 100 == 4 /* client error */) {
             log.info(
                     "Error handling request",
@@ -227,8 +244,13 @@ public enum ConjureExceptions implements ExceptionHandler {
         }
     }
 
-    private static void log(ServiceException exception) {
-        log(exception, exception);
+    private static void logSuppressed(ErrorLogSampling sampling) {
+        Map<String, Long> suppressed = sampling.pollSuppressed();
+        if (!suppressed.isEmpty()) {
+            log.warn(
+                    "Suppressed error logs exceeding the configured rate",
+                    SafeArg.of("suppressedByErrorName", suppressed));
+        }
     }
 
     private static void setFailure(HttpServerExchange exchange, Throwable failure) {
@@ -243,6 +265,10 @@ public enum ConjureExceptions implements ExceptionHandler {
         }
     }
 
+    private interface ErrorBody {
+        void write() throws IOException;
+    }
+
     private static final QosException.Visitor<Integer> QOS_EXCEPTION_STATUS_CODE = new QosException.Visitor<Integer>() {
         @Override
         public Integer visit(QosException.Throttle _exception) {
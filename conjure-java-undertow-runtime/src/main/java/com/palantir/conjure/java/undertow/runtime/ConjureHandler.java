@@ -16,9 +16,11 @@
 
 package com.palantir.conjure.java.undertow.runtime;
 
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Table;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.palantir.conjure.java.undertow.lib.Endpoint;
 import com.palantir.conjure.java.undertow.lib.UndertowRuntime;
@@ -29,20 +31,23 @@ import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
 import com.palantir.logsafe.exceptions.SafeIllegalStateException;
 import com.palantir.tracing.undertow.TracedRequestHandler;
 import com.palantir.tracing.undertow.TracedStateHandler;
-import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.server.RoutingHandler;
 import io.undertow.server.handlers.BlockingHandler;
 import io.undertow.server.handlers.ResponseCodeHandler;
 import io.undertow.server.handlers.URLDecodingHandler;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Conjure routing mechanism which can be registered as an Undertow {@link HttpHandler}. This handler takes care of
@@ -50,19 +55,17 @@ import java.util.stream.Collectors;
  */
 public final class ConjureHandler implements HttpHandler {
 
-    private final RoutingHandler routingHandler;
+    private final PathRouter router;
 
     private ConjureHandler(HttpHandler fallback, List<Endpoint> endpoints) {
-        this.routingHandler = Handlers.routing()
-                .setFallbackHandler(fallback)
-                // The method may be valid for another handlers, the
-                // fallback handler will be used instead of 405 status.
-                .setInvalidMethodHandler(null);
-        endpoints.forEach(this::register);
-        registerSyntheticEndpoints(routingHandler, endpoints);
+        PathRouter.Builder routerBuilder = PathRouter.builder();
+        endpoints.forEach(endpoint -> register(routerBuilder, endpoint));
+        registerSyntheticEndpoints(routerBuilder, endpoints);
+        // The method may be valid for another route, the fallback handler will be used instead of 405 status.
+        this.router = routerBuilder.build(fallback);
     }
 
-    private static List<Endpoint> applyHeadEndpoints(RoutingHandler routingHandler, List<Endpoint> endpoints) {
+    private static List<Endpoint> applyHeadEndpoints(PathRouter.Builder routerBuilder, List<Endpoint> endpoints) {
         List<Endpoint> result = new ArrayList<>(endpoints.size());
         for (Endpoint endpoint : endpoints) {
             result.add(endpoint);
@@ -70,23 +73,23 @@ public final class ConjureHandler implements HttpHandler {
                 Endpoint headEndpoint =
                         Endpoint.builder().from(endpoint).method(Methods.HEAD).build();
                 result.add(headEndpoint);
-                routingHandler.add(headEndpoint.method(), headEndpoint.template(), headEndpoint.handler());
+                register(routerBuilder, headEndpoint);
             }
         }
         return result;
     }
 
-    private static void registerSyntheticEndpoints(RoutingHandler routingHandler, List<Endpoint> endpoints) {
-        List<Endpoint> updatedEndpoints = applyHeadEndpoints(routingHandler, endpoints);
-        registerOptionsEndpoints(routingHandler, updatedEndpoints);
+    private static void registerSyntheticEndpoints(PathRouter.Builder routerBuilder, List<Endpoint> endpoints) {
+        List<Endpoint> updatedEndpoints = applyHeadEndpoints(routerBuilder, endpoints);
+        registerOptionsEndpoints(routerBuilder, updatedEndpoints);
     }
 
-    private static void registerOptionsEndpoints(RoutingHandler routingHandler, List<Endpoint> endpoints) {
+    private static void registerOptionsEndpoints(PathRouter.Builder routerBuilder, List<Endpoint> endpoints) {
         endpoints.stream()
                 .collect(ImmutableSetMultimap.toImmutableSetMultimap(
                         endpoint -> normalizeTemplate(endpoint.template()), Endpoint::method))
                 .asMap()
-                .forEach((normalizedPath, methods) -> routingHandler.add(
+                .forEach((normalizedPath, methods) -> routerBuilder.add(
                         Methods.OPTIONS,
                         normalizedPath,
                         new WebSecurityHandler(new OptionsHandler(ImmutableSet.copyOf(methods)))));
@@ -94,11 +97,11 @@ public final class ConjureHandler implements HttpHandler {
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        routingHandler.handleRequest(exchange);
+        router.handleRequest(exchange);
     }
 
-    private void register(Endpoint endpoint) {
-        routingHandler.add(endpoint.method(), endpoint.template(), endpoint.handler());
+    private static void register(PathRouter.Builder routerBuilder, Endpoint endpoint) {
+        routerBuilder.add(endpoint.method(), endpoint.template(), endpoint.handler());
     }
 
     public static Builder builder() {
@@ -116,6 +119,9 @@ public final class ConjureHandler implements HttpHandler {
         private final List<UndertowService> services = new ArrayList<>();
         private HttpHandler fallback = ResponseCodeHandler.HANDLE_404;
         private UndertowRuntime runtime = ConjureUndertowRuntime.builder().build();
+        private final Map<String, Executor> tagExecutors = new LinkedHashMap<>();
+        private final Map<String, Executor> serviceExecutors = new HashMap<>();
+        private final Table<String, String, Executor> endpointExecutors = HashBasedTable.create();
 
         private Builder() {}
 
@@ -191,6 +197,45 @@ public final class ConjureHandler implements HttpHandler {
             return this;
         }
 
+        /**
+         * Dispatches the blocking handlers of endpoints with the given Conjure tag to a dedicated executor rather
+         * than the shared worker pool, isolating them from slow endpoints. Requests which the executor rejects, for
+         * example because its queue is full, fail with a {@code 503} response. Service and endpoint mappings take
+         * precedence over tags, and tags registered first take precedence over later tags.
+         */
+        @CanIgnoreReturnValue
+        public Builder tagExecutor(String tag, Executor executor) {
+            tagExecutors.put(
+                    Preconditions.checkNotNull(tag, "tag is required"),
+                    Preconditions.checkNotNull(executor, "executor is required"));
+            return this;
+        }
+
+        /**
+         * Dispatches the blocking handlers of all endpoints of the service to a dedicated executor, see
+         * {@link #tagExecutor(String, Executor)}.
+         */
+        @CanIgnoreReturnValue
+        public Builder serviceExecutor(String serviceName, Executor executor) {
+            serviceExecutors.put(
+                    Preconditions.checkNotNull(serviceName, "serviceName is required"),
+                    Preconditions.checkNotNull(executor, "executor is required"));
+            return this;
+        }
+
+        /**
+         * Dispatches the blocking handler of an endpoint to a dedicated executor, see
+         * {@link #tagExecutor(String, Executor)}.
+         */
+        @CanIgnoreReturnValue
+        public Builder endpointExecutor(String serviceName, String endpointName, Executor executor) {
+            endpointExecutors.put(
+                    Preconditions.checkNotNull(serviceName, "serviceName is required"),
+                    Preconditions.checkNotNull(endpointName, "endpointName is required"),
+                    Preconditions.checkNotNull(executor, "executor is required"));
+            return this;
+        }
+
         public HttpHandler build() {
             ImmutableList<Endpoint> serviceEndpoints = services.stream()
                     .flatMap(service -> service.endpoints(runtime).stream())
@@ -202,7 +247,7 @@ public final class ConjureHandler implements HttpHandler {
                     .build();
             checkOverlappingPaths(allEndpoints);
 
-            ImmutableList<EndpointHandlerWrapper> wrappers = ImmutableList.<EndpointHandlerWrapper>builder()
+            ImmutableList.Builder<EndpointHandlerWrapper> wrappers = ImmutableList.<EndpointHandlerWrapper>builder()
                     .add(
                             // Begin the server span as early as possible to capture the most of the request.
                             endpoint -> Optional.of(new TracedRequestHandler(
@@ -215,40 +260,90 @@ public final class ConjureHandler implements HttpHandler {
                             // for encoded slash values. When DECODE_URL has not been disabled, the following handler
                             // will no-op
                             endpoint -> Optional.of(new URLDecodingHandler(endpoint.handler(), "UTF-8")),
-                            // no-cache and web-security handlers add listeners for the response to be committed,
+                            // Parse the client deadline on receipt so that queueing counts against it.
+                            endpoint -> Optional.of(RequestDeadline.parseHandler(endpoint.handler())),
+                            // Applies the no-cache, web-security and deprecation headers computed once per endpoint,
                             // they can be executed on the IO thread.
-                            endpoint -> Methods.GET.equals(endpoint.method())
-                                    // Only applies to GET methods
-                                    ? Optional.of(new NoCachingResponseHandler(endpoint.handler()))
+                            StaticResponseHeaders::handler,
+                            // Allows responses to be compressed when configured, serializers read the per-endpoint
+                            // configuration from the exchange.
+                            endpoint -> runtime instanceof ConjureUndertowRuntime
+                                    ? ((ConjureUndertowRuntime) runtime).responseCompressionHandler(endpoint)
                                     : Optional.empty(),
-                            endpoint -> Optional.of(new WebSecurityHandler(endpoint.handler())),
-                            endpoint -> endpoint.deprecated()
-                                    .map(_reason -> new DeprecationReportingResponseHandler(endpoint.handler())))
+                            // Endpoints may opt in to range requests, binary serialization reads the configuration
+                            // from the exchange.
+                            RangeRequests::handler)
                     // Apply custom non-blocking handlers just before the BlockingHandler
                     .addAll(wrappersJustBeforeBlocking)
-                    // It is vitally important to never run blocking operations on the initial IO thread otherwise
-                    // the server will not process new requests. all handlers executed after BlockingHandler
-                    // use the larger task pool which is allowed to block. Any operation which sets thread
-                    // state (e.g. SLF4J MDC or Tracer) must execute on the blocking thread otherwise state
-                    // will not propagate to the wrapped service.
-                    .add(
-                            endpoint -> Optional.of(new BlockingHandler(endpoint.handler())),
-                            // Logging context and trace handler must execute prior to the exception
-                            // to provide user and trace information on exceptions.
-                            endpoint -> Optional.of(new LoggingContextHandler(endpoint.handler())),
-                            endpoint -> Optional.of(new TracedStateHandler(endpoint.handler())),
-                            endpoint -> Optional.of(
-                                    new ConjureExceptionHandler(endpoint.handler(), runtime.exceptionHandler())))
-                    .build()
-                    .reverse();
+                    // Optionally read request bodies on the IO thread, this must be the last step before
+                    // dispatching to the task pool.
+                    .add(endpoint -> runtime instanceof ConjureUndertowRuntime
+                            ? ((ConjureUndertowRuntime) runtime).nonBlockingRequestBodyHandler(endpoint)
+                            : Optional.empty());
+            // It is vitally important to never run blocking operations on the initial IO thread otherwise
+            // the server will not process new requests. all handlers executed after BlockingHandler
+            // use the larger task pool which is allowed to block. Any operation which sets thread
+            // state (e.g. SLF4J MDC or Tracer) must execute on the blocking thread otherwise state
+            // will not propagate to the wrapped service.
+            if (hasCustomDispatch()) {
+                wrappers.add(
+                        endpoint -> Optional.of(dispatchHandler(endpoint)),
+                        endpoint -> Optional.of(new LoggingContextHandler(endpoint.handler())));
+            } else {
+                wrappers.add(
+                        endpoint -> Optional.of(new BlockingHandler(endpoint.handler())),
+                        // Logging context and trace handler must execute prior to the exception
+                        // to provide user and trace information on exceptions.
+                        endpoint -> Optional.of(new LoggingContextHandler(endpoint.handler())));
+            }
+            wrappers.add(
+                    endpoint -> Optional.of(new TracedStateHandler(endpoint.handler())),
+                    endpoint -> Optional.of(
+                            new ConjureExceptionHandler(endpoint.handler(), runtime.exceptionHandler())),
+                    // Requests the client has already given up on fail rather than invoking the endpoint.
+                    endpoint -> Optional.of(RequestDeadline.enforceHandler(endpoint.handler())));
+            // Wrappers are listed from the outermost handler, so they are applied in reverse.
+            ImmutableList<EndpointHandlerWrapper> innermostFirst = wrappers.build().reverse();
 
             return new ConjureHandler(
                     fallback,
                     allEndpoints.stream()
-                            .map(endpoint -> wrap(endpoint, wrappers))
+                            .map(endpoint -> wrap(endpoint, innermostFirst))
                             .collect(ImmutableList.toImmutableList()));
         }
 
+        private boolean hasCustomDispatch() {
+            return !tagExecutors.isEmpty()
+                    || !serviceExecutors.isEmpty()
+                    || !endpointExecutors.isEmpty()
+                    || (runtime instanceof ConjureUndertowRuntime
+                            && ((ConjureUndertowRuntime) runtime).hasCustomDispatch());
+        }
+
+        private HttpHandler dispatchHandler(Endpoint endpoint) {
+            Executor executor = executor(endpoint);
+            return runtime instanceof ConjureUndertowRuntime
+                    ? ((ConjureUndertowRuntime) runtime).dispatchHandler(endpoint, executor)
+                    : new ExecutorDispatchHandler(endpoint.handler(), executor, 0, runtime.exceptionHandler());
+        }
+
+        /** Returns the dedicated executor for the endpoint, preferring the most specific mapping. */
+        @Nullable
+        private Executor executor(Endpoint endpoint) {
+            Executor executor = endpointExecutors.get(endpoint.serviceName(), endpoint.name());
+            if (executor == null) {
+                executor = serviceExecutors.get(endpoint.serviceName());
+            }
+            if (executor == null) {
+                for (Map.Entry<String, Executor> entry : tagExecutors.entrySet()) {
+                    if (endpoint.tags().contains(entry.getKey())) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            return executor;
+        }
+
         private static Endpoint wrap(Endpoint input, List<EndpointHandlerWrapper> wrappers) {
             Endpoint current = input;
             for (EndpointHandlerWrapper wrapper : wrappers) {
@@ -28,6 +28,7 @@ import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
 import com.palantir.ri.ResourceIdentifier;
 import com.palantir.tokens.auth.BearerToken;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -43,6 +44,8 @@ import javax.annotation.Nullable;
 enum ConjurePlainSerDe implements PlainSerDe {
     INSTANCE;
 
+    private static final int DEFAULT_SIZE_HINT = 8;
+
     @Override
     public BearerToken deserializeBearerToken(@Nullable String in) {
         checkArgumentNotNull(in);
@@ -81,7 +84,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<BearerToken> builder = ImmutableList.builder();
+        ImmutableList.Builder<BearerToken> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeBearerToken(item));
         }
@@ -93,7 +96,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<BearerToken> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<BearerToken> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeBearerToken(item));
         }
@@ -136,7 +139,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<Boolean> builder = ImmutableList.builder();
+        ImmutableList.Builder<Boolean> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeBoolean(item));
         }
@@ -148,7 +151,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<Boolean> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<Boolean> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeBoolean(item));
         }
@@ -191,7 +194,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<OffsetDateTime> builder = ImmutableList.builder();
+        ImmutableList.Builder<OffsetDateTime> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeDateTime(item));
         }
@@ -203,7 +206,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<OffsetDateTime> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<OffsetDateTime> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeDateTime(item));
         }
@@ -246,11 +249,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<Double> builder = ImmutableList.builder();
+        PrimitiveCollections.DoubleBuilder builder = new PrimitiveCollections.DoubleBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeDouble(item));
         }
-        return builder.build();
+        return builder.buildList();
     }
 
     @Override
@@ -258,11 +261,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<Double> builder = ImmutableSet.builder();
+        PrimitiveCollections.DoubleBuilder builder = new PrimitiveCollections.DoubleBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeDouble(item));
         }
-        return builder.build();
+        return builder.buildSet();
     }
 
     @Override
@@ -301,11 +304,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+        PrimitiveCollections.IntBuilder builder = new PrimitiveCollections.IntBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeInteger(item));
         }
-        return builder.build();
+        return builder.buildList();
     }
 
     @Override
@@ -313,11 +316,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        PrimitiveCollections.IntBuilder builder = new PrimitiveCollections.IntBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeInteger(item));
         }
-        return builder.build();
+        return builder.buildSet();
     }
 
     @Override
@@ -356,7 +359,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<ResourceIdentifier> builder = ImmutableList.builder();
+        ImmutableList.Builder<ResourceIdentifier> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeRid(item));
         }
@@ -368,7 +371,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<ResourceIdentifier> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<ResourceIdentifier> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeRid(item));
         }
@@ -411,11 +414,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<SafeLong> builder = ImmutableList.builder();
+        PrimitiveCollections.SafeLongBuilder builder = new PrimitiveCollections.SafeLongBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeSafeLong(item));
         }
-        return builder.build();
+        return builder.buildList();
     }
 
     @Override
@@ -423,11 +426,11 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<SafeLong> builder = ImmutableSet.builder();
+        PrimitiveCollections.SafeLongBuilder builder = new PrimitiveCollections.SafeLongBuilder(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeSafeLong(item));
         }
-        return builder.build();
+        return builder.buildSet();
     }
 
     @Override
@@ -502,7 +505,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<UUID> builder = ImmutableList.builder();
+        ImmutableList.Builder<UUID> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeUuid(item));
         }
@@ -514,7 +517,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<UUID> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeUuid(item));
         }
@@ -541,7 +544,7 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptyList();
         }
-        ImmutableList.Builder<T> builder = ImmutableList.builder();
+        ImmutableList.Builder<T> builder = ImmutableList.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeComplex(item, factory));
         }
@@ -553,13 +556,18 @@ enum ConjurePlainSerDe implements PlainSerDe {
         if (in == null) {
             return Collections.emptySet();
         }
-        ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+        ImmutableSet.Builder<T> builder = ImmutableSet.builderWithExpectedSize(sizeHint(in));
         for (String item : in) {
             builder.add(deserializeComplex(item, factory));
         }
         return builder.build();
     }
 
+    /** Query parameters and headers are collections, so their size is known before they are deserialized. */
+    private static int sizeHint(Iterable<?> input) {
+        return input instanceof Collection ? ((Collection<?>) input).size() : DEFAULT_SIZE_HINT;
+    }
+
     private static <T> T getOnlyElement(@Nullable Iterable<T> input) {
         return getOnlyElementInternal(input, true);
     }
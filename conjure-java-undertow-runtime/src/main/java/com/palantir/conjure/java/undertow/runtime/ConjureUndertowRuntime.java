@@ -22,35 +22,64 @@ import com.palantir.conjure.java.undertow.lib.AsyncRequestProcessing;
 import com.palantir.conjure.java.undertow.lib.AuthorizationExtractor;
 import com.palantir.conjure.java.undertow.lib.BodySerDe;
 import com.palantir.conjure.java.undertow.lib.Contexts;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
 import com.palantir.conjure.java.undertow.lib.ExceptionHandler;
 import com.palantir.conjure.java.undertow.lib.MarkerCallback;
 import com.palantir.conjure.java.undertow.lib.PlainSerDe;
 import com.palantir.conjure.java.undertow.lib.UndertowRuntime;
 import com.palantir.logsafe.Preconditions;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Methods;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 
 /** {@link ConjureUndertowRuntime} provides functionality required by generated handlers. */
 public final class ConjureUndertowRuntime implements UndertowRuntime {
 
-    private final BodySerDe bodySerDe;
+    private final ConjureBodySerDe bodySerDe;
     private final AuthorizationExtractor auth;
     private final MarkerCallback markerCallback;
-    private final AsyncRequestProcessing async;
+    private final ConjureAsyncRequestProcessing async;
     private final ExceptionHandler exceptionHandler;
     private final Contexts contexts;
+    private final boolean nonBlockingRequestBodies;
+    private final long maxNonBlockingRequestBodyBytes;
+
+    @Nullable
+    private final ResponseCompression responseCompression;
+
+    @Nullable
+    private final Executor blockingExecutor;
+
+    private final int maxConcurrentRequestsPerEndpoint;
+
+    @Nullable
+    private final JsonWebTokenCache jwtCache;
 
     private ConjureUndertowRuntime(Builder builder) {
         this.bodySerDe = new ConjureBodySerDe(
                 builder.encodings.isEmpty()
                         ? ImmutableList.of(Encodings.json(), Encodings.smile(), Encodings.cbor())
-                        : builder.encodings);
-        this.auth = new ConjureAuthorizationExtractor(plainSerDe());
+                        : builder.encodings,
+                builder.maxBufferedResponseBytes,
+                builder.maxDecompressedRequestBytes);
+        this.jwtCache =
+                builder.unverifiedJwtCacheSize > 0 ? new JsonWebTokenCache(builder.unverifiedJwtCacheSize) : null;
+        this.auth = new ConjureAuthorizationExtractor(plainSerDe(), jwtCache);
         this.exceptionHandler = builder.exceptionHandler;
         this.markerCallback = MarkerCallbacks.fold(builder.paramMarkers);
         this.async = new ConjureAsyncRequestProcessing(builder.asyncTimeout, builder.exceptionHandler);
         this.contexts = new ConjureContexts(builder.requestArgHandler);
+        this.nonBlockingRequestBodies = builder.nonBlockingRequestBodies;
+        this.maxNonBlockingRequestBodyBytes = builder.maxNonBlockingRequestBodyBytes;
+        this.responseCompression =
+                builder.responseCompression ? new ResponseCompression(builder.responseCompressionThreshold) : null;
+        this.blockingExecutor = builder.blockingExecutor;
+        this.maxConcurrentRequestsPerEndpoint = builder.maxConcurrentRequestsPerEndpoint;
     }
 
     public static Builder builder() {
@@ -82,6 +111,47 @@ public final class ConjureUndertowRuntime implements UndertowRuntime {
         return async;
     }
 
+    /**
+     * Returns the number of asynchronous requests awaiting a result within their {@link Builder#asyncTimeout(Duration)
+     * timeout}, for example to be registered as a gauge.
+     */
+    public int liveAsyncTimeouts() {
+        return async.liveTimeouts();
+    }
+
+    /**
+     * Returns the number of requests whose bearer token was found in the
+     * {@link Builder#unverifiedJwtCacheSize(int) parsed token cache}, or zero if the cache is disabled.
+     */
+    public long unverifiedJwtCacheHits() {
+        return jwtCache == null ? 0 : jwtCache.hits();
+    }
+
+    /**
+     * Returns the number of requests whose bearer token was parsed because it was not found in the
+     * {@link Builder#unverifiedJwtCacheSize(int) parsed token cache}, or zero if the cache is disabled.
+     */
+    public long unverifiedJwtCacheMisses() {
+        return jwtCache == null ? 0 : jwtCache.misses();
+    }
+
+    /**
+     * Returns the number of {@code Accept} and {@code Content-Type} header values whose negotiated encoding was found
+     * in the runtime's cache of previously negotiated values.
+     */
+    public long contentNegotiationCacheHits() {
+        return bodySerDe.negotiation().hits();
+    }
+
+    /**
+     * Returns the number of {@code Accept} and {@code Content-Type} header values which were negotiated because they
+     * were not cached. The cache holds a bounded number of distinct values and does not evict them, so a sustained
+     * miss rate indicates clients sending many distinct values.
+     */
+    public long contentNegotiationCacheMisses() {
+        return bodySerDe.negotiation().misses();
+    }
+
     @Override
     public ExceptionHandler exceptionHandler() {
         return exceptionHandler;
@@ -92,11 +162,65 @@ public final class ConjureUndertowRuntime implements UndertowRuntime {
         return contexts;
     }
 
+    /**
+     * Wraps endpoints which may receive request bodies to read them on the IO thread when
+     * {@link Builder#nonBlockingRequestBodies(boolean)} is enabled. Must be applied immediately before the
+     * endpoint is dispatched to the server task pool.
+     */
+    Optional<HttpHandler> nonBlockingRequestBodyHandler(Endpoint endpoint) {
+        if (!nonBlockingRequestBodies || Methods.GET.equals(endpoint.method())) {
+            return Optional.empty();
+        }
+        return bodySerDe.nonBlockingRequestBodyHandler(endpoint.handler(), maxNonBlockingRequestBodyBytes);
+    }
+
+    /**
+     * Enables compression of responses serialized by {@link #bodySerDe()} when
+     * {@link Builder#responseCompression(boolean)} is enabled, unless the endpoint has opted out.
+     */
+    Optional<HttpHandler> responseCompressionHandler(Endpoint endpoint) {
+        return responseCompression == null ? Optional.empty() : responseCompression.handler(endpoint);
+    }
+
+    /**
+     * Returns true if endpoints are dispatched using {@link #dispatchHandler(Endpoint, Executor)} rather than
+     * Undertow's {@link io.undertow.server.handlers.BlockingHandler}.
+     */
+    boolean hasCustomDispatch() {
+        return blockingExecutor != null || maxConcurrentRequestsPerEndpoint > 0;
+    }
+
+    /**
+     * Dispatches the endpoint to {@code executor} if present, otherwise the
+     * {@link Builder#blockingExecutor(Executor) blocking executor}, bounded by
+     * {@link Builder#maxConcurrentRequestsPerEndpoint(int)}. Replaces the {@code BlockingHandler} when
+     * {@link #hasCustomDispatch()} or the endpoint has a dedicated executor.
+     */
+    HttpHandler dispatchHandler(Endpoint endpoint, @Nullable Executor executor) {
+        return new ExecutorDispatchHandler(
+                endpoint.handler(),
+                executor == null ? blockingExecutor : executor,
+                maxConcurrentRequestsPerEndpoint,
+                exceptionHandler);
+    }
+
     public static final class Builder {
 
         private Duration asyncTimeout = Duration.ofMinutes(3);
         private ExceptionHandler exceptionHandler = ConjureExceptions.INSTANCE;
         private RequestArgHandler requestArgHandler = DefaultRequestArgHandler.INSTANCE;
+        private boolean nonBlockingRequestBodies = false;
+        private long maxNonBlockingRequestBodyBytes = 16L * 1024 * 1024;
+        private int maxBufferedResponseBytes = 0;
+        private boolean responseCompression = false;
+        private int responseCompressionThreshold = 1024;
+        private long maxDecompressedRequestBytes = RequestDecompression.DEFAULT_MAX_DECOMPRESSED_BYTES;
+
+        @Nullable
+        private Executor blockingExecutor;
+
+        private int maxConcurrentRequestsPerEndpoint = 0;
+        private int unverifiedJwtCacheSize = 0;
         private final List<Encoding> encodings = new ArrayList<>();
         private final List<ParamMarker> paramMarkers = new ArrayList<>();
 
@@ -132,6 +256,115 @@ public final class ConjureUndertowRuntime implements UndertowRuntime {
             return this;
         }
 
+        /**
+         * Enables reading JSON and Smile request bodies on the IO thread using a non-blocking parser. Requests are
+         * only dispatched to the server task pool once the entire body has been received, so slow clients do not
+         * hold task pool threads while uploading. Disabled by default.
+         */
+        @CanIgnoreReturnValue
+        public Builder nonBlockingRequestBodies(boolean value) {
+            nonBlockingRequestBodies = value;
+            return this;
+        }
+
+        /**
+         * Bounds the size of request bodies which are buffered by {@link #nonBlockingRequestBodies(boolean)}. Requests
+         * with a larger {@code Content-Length} are read by the blocking deserializer instead, and requests without a
+         * {@code Content-Length} which exceed this size fail with a {@code 413} response. Defaults to 16 MiB.
+         */
+        @CanIgnoreReturnValue
+        public Builder maxNonBlockingRequestBodyBytes(long bytes) {
+            Preconditions.checkArgument(bytes > 0, "maxNonBlockingRequestBodyBytes must be positive");
+            maxNonBlockingRequestBodyBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Serialized response bodies up to this size are written into pooled connection buffers and sent with an
+         * exact {@code Content-Length} using a single gathering write, larger bodies are streamed. Buffering also
+         * allows a response which fails to serialize to be replaced by an error. Disabled by default.
+         */
+        @CanIgnoreReturnValue
+        public Builder maxBufferedResponseBytes(int value) {
+            Preconditions.checkArgument(value >= 0, "maxBufferedResponseBytes must not be negative");
+            maxBufferedResponseBytes = value;
+            return this;
+        }
+
+        /**
+         * Enables {@code gzip} and {@code deflate} compression of serialized response bodies based on the request
+         * {@code Accept-Encoding} header. Endpoints may opt out using the {@code server-no-response-compression} tag,
+         * or override the {@link #responseCompressionThreshold(int) threshold} using a
+         * {@code server-response-compression{threshold=<bytes>}} tag. Binary responses are not compressed. Disabled
+         * by default.
+         */
+        @CanIgnoreReturnValue
+        public Builder responseCompression(boolean value) {
+            responseCompression = value;
+            return this;
+        }
+
+        /**
+         * Response bodies smaller than this size are not compressed, the overhead outweighs the benefit for small
+         * bodies. Defaults to 1024 bytes.
+         */
+        @CanIgnoreReturnValue
+        public Builder responseCompressionThreshold(int bytes) {
+            Preconditions.checkArgument(bytes >= 0, "responseCompressionThreshold must not be negative");
+            responseCompressionThreshold = bytes;
+            return this;
+        }
+
+        /**
+         * Request bodies sent with a {@code gzip} or {@code deflate} {@code Content-Encoding} are decoded before they
+         * are deserialized, requests which exceed this size once decompressed fail with a {@code 413} response.
+         * Defaults to 64 MiB.
+         */
+        @CanIgnoreReturnValue
+        public Builder maxDecompressedRequestBytes(long bytes) {
+            Preconditions.checkArgument(bytes > 0, "maxDecompressedRequestBytes must be positive");
+            maxDecompressedRequestBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Blocking endpoint handlers are dispatched to this executor rather than the Undertow worker pool, so
+         * concurrency is not capped by the number of worker threads. Services which spend most of their time waiting
+         * on other services may use a virtual-thread-per-task executor when running on Java 21 or later, for example
+         * {@code Executors.newVirtualThreadPerTaskExecutor()}. Logging and tracing state is set on the executor
+         * thread in the same way as on worker threads. Consider bounding concurrency using
+         * {@link #maxConcurrentRequestsPerEndpoint(int)}. Defaults to the Undertow worker pool.
+         */
+        @CanIgnoreReturnValue
+        public Builder blockingExecutor(Executor value) {
+            blockingExecutor = Preconditions.checkNotNull(value, "blockingExecutor is required");
+            return this;
+        }
+
+        /**
+         * Bounds the number of requests to each endpoint which may be in progress at once, additional requests fail
+         * with a {@code 503} response before they are dispatched. Requests are in progress until the response has
+         * been completed. Unbounded by default.
+         */
+        @CanIgnoreReturnValue
+        public Builder maxConcurrentRequestsPerEndpoint(int value) {
+            Preconditions.checkArgument(value > 0, "maxConcurrentRequestsPerEndpoint must be positive");
+            maxConcurrentRequestsPerEndpoint = value;
+            return this;
+        }
+
+        /**
+         * Caches the user, session and token ids parsed from up to this many distinct bearer tokens, so that they are
+         * not decoded on every request which sends the same token. Entries are not used after the token's
+         * {@code exp} claim. Disabled by default.
+         */
+        @CanIgnoreReturnValue
+        public Builder unverifiedJwtCacheSize(int value) {
+            Preconditions.checkArgument(value >= 0, "unverifiedJwtCacheSize must not be negative");
+            unverifiedJwtCacheSize = value;
+            return this;
+        }
+
         public ConjureUndertowRuntime build() {
             return new ConjureUndertowRuntime(this);
         }
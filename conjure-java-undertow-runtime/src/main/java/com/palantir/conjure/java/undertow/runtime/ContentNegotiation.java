@@ -0,0 +1,199 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.logsafe.Preconditions;
+import io.undertow.util.HeaderValues;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Selects the {@link Encoding} for request and response bodies based on the {@code Content-Type} and {@code Accept}
+ * headers. Clients send a small number of distinct header values, so results are cached by the raw header value
+ * allowing negotiation to cost a single hash lookup without allocation. A single instance is shared by all endpoints
+ * of a {@link ConjureUndertowRuntime}.
+ *
+ * <p>Entries are never evicted. Once {@link #MAX_CACHED_VALUES} distinct values of a header have been cached, further
+ * values are negotiated on every request and counted as {@link #misses()}, so a sustained miss rate indicates clients
+ * sending many distinct values.
+ *
+ * <p>Package private internal API.
+ */
+final class ContentNegotiation {
+
+    /** Returned by {@link #requestEncoding(String)} when no encoding supports the {@code Content-Type}. */
+    static final int UNSUPPORTED = -1;
+
+    /**
+     * Maximum number of distinct header values cached for each of {@code Accept} and {@code Content-Type}. Values
+     * beyond this limit are negotiated on each request, which prevents clients from growing the cache without bound.
+     */
+    static final int MAX_CACHED_VALUES = 256;
+
+    /**
+     * Content types of the standard encodings from least to most expensive to serialize, used to select between
+     * encodings the client accepts with equal weight.
+     */
+    private static final ImmutableList<String> SERIALIZATION_COST_ORDER =
+            ImmutableList.of("application/x-jackson-smile", "application/cbor", "application/json");
+
+    private static final int UNKNOWN_COST = Integer.MAX_VALUE;
+
+    private final List<Encoding> encodings;
+    private final int[] serializationCosts;
+    private final NegotiationCache acceptCache = new NegotiationCache();
+    private final NegotiationCache contentTypeCache = new NegotiationCache();
+
+    ContentNegotiation(List<Encoding> encodings) {
+        Preconditions.checkArgument(!encodings.isEmpty(), "At least one Encoding is required");
+        this.encodings = ImmutableList.copyOf(encodings);
+        this.serializationCosts = encodings.stream()
+                .mapToInt(encoding -> {
+                    int cost = SERIALIZATION_COST_ORDER.indexOf(encoding.getContentType());
+                    return cost < 0 ? UNKNOWN_COST : cost;
+                })
+                .toArray();
+    }
+
+    /**
+     * Returns the index of the encoding which should be used to serialize the response. Encodings are selected by
+     * {@code q} weight, then by preferring media types named explicitly over wildcard matches. When explicitly named
+     * standard encodings are weighted equally the least expensive is used, otherwise the client order applies and
+     * finally the configured encoding order. Falls back to the first encoding when the client does not accept any of
+     * the available encodings.
+     */
+    int responseEncoding(HeaderValues acceptValues) {
+        if (acceptValues == null || acceptValues.isEmpty()) {
+            return 0;
+        }
+        if (acceptValues.size() == 1) {
+            String acceptValue = acceptValues.getFirst();
+            int cached = acceptCache.get(acceptValue);
+            if (cached != NegotiationCache.ABSENT) {
+                return cached;
+            }
+            return acceptCache.put(acceptValue, negotiateResponseEncoding(acceptValues));
+        }
+        // Multiple Accept headers are rare, and cannot be keyed by a single value.
+        return negotiateResponseEncoding(acceptValues);
+    }
+
+    /**
+     * Returns the index of the encoding which supports the request {@code Content-Type}, or {@link #UNSUPPORTED}.
+     */
+    int requestEncoding(String contentType) {
+        int cached = contentTypeCache.get(contentType);
+        if (cached != NegotiationCache.ABSENT) {
+            return cached;
+        }
+        return contentTypeCache.put(contentType, negotiateRequestEncoding(contentType));
+    }
+
+    /** Returns the number of negotiations answered from the cache. */
+    long hits() {
+        return acceptCache.hits.sum() + contentTypeCache.hits.sum();
+    }
+
+    /** Returns the number of negotiations which were not cached, including values beyond the cache limit. */
+    long misses() {
+        return acceptCache.misses.sum() + contentTypeCache.misses.sum();
+    }
+
+    private int negotiateResponseEncoding(HeaderValues acceptValues) {
+        int selected = -1;
+        int selectedMatch = AcceptHeader.NO_MATCH;
+        for (int i = 0; i < encodings.size(); i++) {
+            int match = AcceptHeader.match(acceptValues, encodings.get(i).getContentType());
+            if (AcceptHeader.quality(match) > 0 && (selected < 0 || isPreferred(match, selectedMatch))) {
+                selected = i;
+                selectedMatch = match;
+            }
+        }
+        if (selected < 0) {
+            return 0;
+        }
+        if (!AcceptHeader.isExact(selectedMatch) || serializationCosts[selected] == UNKNOWN_COST) {
+            return selected;
+        }
+        // Replace the selected encoding with the cheapest standard encoding named with the same weight.
+        int cheapest = selected;
+        for (int i = 0; i < encodings.size(); i++) {
+            if (serializationCosts[i] < serializationCosts[cheapest]) {
+                int match = AcceptHeader.match(acceptValues, encodings.get(i).getContentType());
+                if (AcceptHeader.isExact(match) && AcceptHeader.quality(match) == AcceptHeader.quality(selectedMatch)) {
+                    cheapest = i;
+                }
+            }
+        }
+        return cheapest;
+    }
+
+    private static boolean isPreferred(int match, int current) {
+        int quality = AcceptHeader.quality(match);
+        int currentQuality = AcceptHeader.quality(current);
+        if (quality != currentQuality) {
+            return quality > currentQuality;
+        }
+        boolean exact = AcceptHeader.isExact(match);
+        if (exact != AcceptHeader.isExact(current)) {
+            return exact;
+        }
+        // Equal positions are the same wildcard range, in which case the configured order applies
+        return AcceptHeader.position(match) < AcceptHeader.position(current);
+    }
+
+    @SuppressWarnings("ForLoopReplaceableByForEach") // performance sensitive code avoids iterator allocation
+    private int negotiateRequestEncoding(String contentType) {
+        for (int i = 0; i < encodings.size(); i++) {
+            if (encodings.get(i).supportsContentType(contentType)) {
+                return i;
+            }
+        }
+        return UNSUPPORTED;
+    }
+
+    private static final class NegotiationCache {
+
+        private static final int ABSENT = Integer.MIN_VALUE;
+
+        // Values are small encoding indexes, so boxing uses the Integer cache and does not allocate.
+        private final ConcurrentHashMap<String, Integer> values = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        int get(String key) {
+            Integer value = values.get(key);
+            if (value == null) {
+                misses.increment();
+                return ABSENT;
+            }
+            hits.increment();
+            return value;
+        }
+
+        int put(String key, int value) {
+            // The size check races with concurrent insertions, which may overshoot the limit by the number of
+            // concurrent callers. This is preferable to synchronizing on the request path.
+            if (values.size() < MAX_CACHED_VALUES) {
+                values.putIfAbsent(key, value);
+            }
+            return value;
+        }
+    }
+}
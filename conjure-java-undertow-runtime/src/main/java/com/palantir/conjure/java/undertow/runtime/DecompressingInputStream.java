@@ -0,0 +1,235 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.runtime.CompressingOutputStream.ContentCoding;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes a request body using the {@code gzip} or {@code deflate} content coding with a pooled {@link Inflater}.
+ * Decoding fails with a {@code 413} response once the decompressed size exceeds the limit, which protects the server
+ * from small requests which expand to exhaust memory. Malformed bodies fail with a {@code 400} response.
+ *
+ * <p>The {@link Inflater} is returned to its pool once the end of the body is reached, or when the stream is closed.
+ * Closing this stream does not close the underlying request stream.
+ *
+ * <p>Package private internal API.
+ */
+final class DecompressingInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_FLAG_HEADER_CRC = 2;
+    private static final int GZIP_FLAG_EXTRA = 4;
+    private static final int GZIP_FLAG_NAME = 8;
+    private static final int GZIP_FLAG_COMMENT = 16;
+
+    private final InputStream input;
+    private final ContentCoding coding;
+    private final InflaterPool pool;
+    private final long limit;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // Reused by read() to avoid an allocation per byte
+    private final byte[] single = new byte[1];
+    private int position;
+    private int available;
+    private long decompressed;
+    private boolean complete;
+
+    @Nullable
+    private Inflater inflater;
+
+    @Nullable
+    private CRC32 crc;
+
+    DecompressingInputStream(InputStream input, ContentCoding coding, InflaterPool pool, long limit) {
+        this.input = input;
+        this.coding = coding;
+        this.pool = pool;
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (complete) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        Inflater current = inflater;
+        if (current == null) {
+            // An empty body is empty regardless of the content coding
+            if (position == available && !fill()) {
+                complete = true;
+                return -1;
+            }
+            current = start();
+        }
+        while (true) {
+            int inflated = inflate(current, bytes, offset, length);
+            if (inflated > 0) {
+                decompressed += inflated;
+                if (decompressed > limit) {
+                    throw FrameworkException.requestEntityTooLarge(
+                            "Decompressed request body exceeds the limit", SafeArg.of("limit", limit));
+                }
+                if (crc != null) {
+                    crc.update(bytes, offset, inflated);
+                }
+                return inflated;
+            }
+            if (current.finished()) {
+                finish(current);
+                return -1;
+            }
+            if (current.needsDictionary()) {
+                throw malformed("Compressed request body requires a preset dictionary");
+            }
+            if (current.needsInput()) {
+                if (position == available && !fill()) {
+                    throw malformed("Compressed request body ended unexpectedly");
+                }
+                current.setInput(buffer, position, available - position);
+                position = available;
+            }
+        }
+    }
+
+    /** Returns the {@link Inflater} to its pool, the underlying stream is not closed. */
+    @Override
+    public void close() {
+        complete = true;
+        release();
+    }
+
+    private Inflater start() throws IOException {
+        if (coding == ContentCoding.GZIP) {
+            readGzipHeader();
+            crc = new CRC32();
+        }
+        Inflater current = pool.acquire();
+        inflater = current;
+        return current;
+    }
+
+    private static int inflate(Inflater current, byte[] bytes, int offset, int length) {
+        try {
+            return current.inflate(bytes, offset, length);
+        } catch (DataFormatException e) {
+            throw new SafeIllegalArgumentException("Failed to decompress request body", e);
+        }
+    }
+
+    private void finish(Inflater current) throws IOException {
+        // Input which was provided to the inflater, but not consumed, belongs to the trailer.
+        position = available - current.getRemaining();
+        if (crc != null) {
+            long expectedCrc = readIntLittleEndian();
+            long expectedSize = readIntLittleEndian();
+            if (expectedCrc != crc.getValue() || expectedSize != (decompressed & 0xffffffffL)) {
+                throw malformed("Compressed request body failed integrity checks");
+            }
+        }
+        complete = true;
+        release();
+    }
+
+    private void release() {
+        Inflater current = inflater;
+        if (current != null) {
+            inflater = null;
+            pool.release(current);
+        }
+    }
+
+    private void readGzipHeader() throws IOException {
+        if (readShortLittleEndian() != GZIP_MAGIC) {
+            throw malformed("Request body is not in gzip format");
+        }
+        if (readByte() != 8) {
+            throw malformed("Unsupported gzip compression method");
+        }
+        int flags = readByte();
+        // Modification time, extra flags, and operating system
+        skip(6);
+        if ((flags & GZIP_FLAG_EXTRA) != 0) {
+            skip(readShortLittleEndian());
+        }
+        if ((flags & GZIP_FLAG_NAME) != 0) {
+            skipNullTerminated();
+        }
+        if ((flags & GZIP_FLAG_COMMENT) != 0) {
+            skipNullTerminated();
+        }
+        if ((flags & GZIP_FLAG_HEADER_CRC) != 0) {
+            skip(2);
+        }
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readByte();
+        }
+    }
+
+    private void skipNullTerminated() throws IOException {
+        while (readByte() != 0) {
+            // skip
+        }
+    }
+
+    private int readShortLittleEndian() throws IOException {
+        return readByte() | (readByte() << 8);
+    }
+
+    private long readIntLittleEndian() throws IOException {
+        return ((long) readShortLittleEndian()) | (((long) readShortLittleEndian()) << 16);
+    }
+
+    private int readByte() throws IOException {
+        if (position == available && !fill()) {
+            throw malformed("Compressed request body ended unexpectedly");
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    /** Reads more compressed data into the buffer, returning false at the end of the underlying stream. */
+    private boolean fill() throws IOException {
+        int read = input.read(buffer, 0, buffer.length);
+        position = 0;
+        available = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private SafeIllegalArgumentException malformed(String message) {
+        return new SafeIllegalArgumentException(message, SafeArg.of("contentEncoding", coding.headerValue()));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater} instances. Each deflater holds native compression state which is expensive to
+ * allocate and is only released by {@link Deflater#end()}, so instances are reset and reused across responses. The
+ * buffers which compressed output is written into are pooled alongside them.
+ *
+ * <p>Package private internal API.
+ */
+final class DeflaterPool {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<byte[]> buffers;
+
+    /**
+     * Creates a pool of deflaters using the given compression {@code level}. Raw deflate streams without the zlib
+     * wrapper, used by gzip, are produced when {@code nowrap} is true.
+     */
+    DeflaterPool(int level, boolean nowrap, int capacity) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.deflaters = new ArrayBlockingQueue<>(capacity);
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        return deflater == null ? new Deflater(level, nowrap) : deflater;
+    }
+
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /** Returns a buffer of {@link #BUFFER_SIZE} bytes for compressed output. */
+    byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer == null ? new byte[BUFFER_SIZE] : buffer;
+    }
+
+    void releaseBuffer(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+}
@@ -30,6 +30,9 @@ final class DeprecationReportingResponseHandler implements HttpHandler {
     private static final HttpString DEPRECATION = HttpString.tryFromString("deprecation");
     private static final String IS_DEPRECATED = "true";
 
+    static final StaticResponseHeaders HEADERS =
+            StaticResponseHeaders.builder().put(DEPRECATION, IS_DEPRECATED).build();
+
     private final HttpHandler next;
 
     DeprecationReportingResponseHandler(HttpHandler next) {
@@ -38,7 +41,7 @@ final class DeprecationReportingResponseHandler implements HttpHandler {
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        exchange.getResponseHeaders().put(DEPRECATION, IS_DEPRECATED);
+        HEADERS.apply(exchange);
         next.handleRequest(exchange);
     }
 }
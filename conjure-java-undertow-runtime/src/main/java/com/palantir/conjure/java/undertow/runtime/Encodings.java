@@ -18,10 +18,14 @@ package com.palantir.conjure.java.undertow.runtime;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.palantir.conjure.java.serialization.ObjectMappers;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
 import com.palantir.logsafe.Preconditions;
@@ -30,14 +34,14 @@ import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
 import com.palantir.logsafe.exceptions.SafeIoException;
 import java.io.IOException;
 
-// TODO(rfink): Consider async Jackson, see
-//              https://github.com/spring-projects/spring-framework/commit/31e0e537500c0763a36d3af2570d5c253a374690
-//              and https://groups.google.com/forum/#!topic/jackson-user/m_prSo8d_Pw
+// Request bodies may be parsed using async Jackson, see NonBlockingRequestBodyHandler. Based on
+// https://github.com/spring-projects/spring-framework/commit/31e0e537500c0763a36d3af2570d5c253a374690
+// and https://groups.google.com/forum/#!topic/jackson-user/m_prSo8d_Pw
 public final class Encodings {
 
     private Encodings() {}
 
-    private abstract static class AbstractJacksonEncoding implements Encoding {
+    private abstract static class AbstractJacksonEncoding implements NonBlockingEncoding, OptionalBodyEncoding {
 
         private final ObjectMapper mapper;
 
@@ -47,7 +51,7 @@ public final class Encodings {
 
         @Override
         public final boolean supportsContentType(String contentType) {
-            // TODO(ckozak): support wildcards? See javax.ws.rs.core.MediaType.isCompatible
+            // Accept header wildcards and weights are handled by AcceptHeader, Content-Type values are concrete.
             if (contentType == null) {
                 return false;
             }
@@ -78,38 +82,94 @@ public final class Encodings {
         @Override
         public final <T> Deserializer<T> deserializer(TypeMarker<T> type) {
             ObjectReader reader = mapper.readerFor(mapper.constructType(type.getType()));
-            return input -> {
-                try {
-                    T value = reader.readValue(input);
-                    // Bad input should result in a 4XX response status, throw IAE rather than NPE.
-                    Preconditions.checkArgument(value != null, "cannot deserialize a JSON null value");
+            return input -> readValue(type, () -> reader.readValue(input));
+        }
+
+        @Override
+        public final boolean supportsOptionalBodies() {
+            return true;
+        }
+
+        @Override
+        public final <T> Deserializer<T> optionalDeserializer(TypeMarker<T> type) {
+            ObjectReader reader = mapper.readerFor(mapper.constructType(type.getType()));
+            T empty = TypeMarkers.getEmptyOptional(type);
+            boolean failOnTrailingTokens = reader.isEnabled(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+            return input -> readValue(type, () -> {
+                try (JsonParser parser = reader.createParser(input)) {
+                    // An empty body has no first token, a body containing only 'null' is bound as empty by Jackson.
+                    if (parser.nextToken() == null) {
+                        return empty;
+                    }
+                    T value = reader.readValue(parser);
+                    if (failOnTrailingTokens && parser.nextToken() != null) {
+                        throw MismatchedInputException.from(
+                                parser, reader.getValueType(), "Trailing token found after the request body value");
+                    }
                     return value;
-                } catch (JsonMappingException e) {
-                    // JsonMappingException includes both MismatchedInputException and InvalidDefinitionException
-                    // which is important for us to detect when both parsing fails (in jackson code) and when object
-                    // validation (setter null checks) fail in our objects.
-                    throw FrameworkException.unprocessableEntity(
-                            "Failed to deserialize request",
-                            e,
-                            SafeArg.of("contentType", getContentType()),
-                            SafeArg.of("type", type));
-                } catch (JsonParseException | NullPointerException e) {
-                    // JsonParseException is thrown when the input cannot be parsed as JSON, for example '{"value"}'.
-                    // NPE is often thrown when an unexpected `null` is contained within the request, e.g. '[null]'.
-                    throw new SafeIllegalArgumentException(
-                            "Failed to parse request due to malformed content",
-                            e,
-                            SafeArg.of("contentType", getContentType()),
-                            SafeArg.of("type", type));
-                } catch (IOException e) {
-                    throw new SafeIoException(
-                            "Failed to deserialize request",
-                            e,
-                            SafeArg.of("contentType", getContentType()),
-                            SafeArg.of("type", type));
                 }
-            };
+            });
         }
+
+        @Override
+        public final boolean supportsNonBlockingParsing() {
+            return mapper.getFactory().canParseAsync();
+        }
+
+        @Override
+        public final JsonParser createNonBlockingParser() throws IOException {
+            return mapper.getFactory().createNonBlockingByteArrayParser();
+        }
+
+        @Override
+        public final TokenBuffer createTokenBuffer(JsonParser parser) {
+            TokenBuffer buffer = new TokenBuffer(parser);
+            // Match the precision the ObjectReader would have used reading the stream directly.
+            buffer.forceUseOfBigDecimal(mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS));
+            return buffer;
+        }
+
+        @Override
+        public final <T> BufferedDeserializer<T> bufferedDeserializer(TypeMarker<T> type) {
+            ObjectReader reader = mapper.readerFor(mapper.constructType(type.getType()));
+            return tokens -> readValue(type, () -> reader.readValue(tokens.asParser()));
+        }
+
+        private <T> T readValue(TypeMarker<T> type, ValueReader<T> valueReader) throws IOException {
+            try {
+                T value = valueReader.read();
+                // Bad input should result in a 4XX response status, throw IAE rather than NPE.
+                Preconditions.checkArgument(value != null, "cannot deserialize a JSON null value");
+                return value;
+            } catch (JsonMappingException e) {
+                // JsonMappingException includes both MismatchedInputException and InvalidDefinitionException
+                // which is important for us to detect when both parsing fails (in jackson code) and when object
+                // validation (setter null checks) fail in our objects.
+                throw FrameworkException.unprocessableEntity(
+                        "Failed to deserialize request",
+                        e,
+                        SafeArg.of("contentType", getContentType()),
+                        SafeArg.of("type", type));
+            } catch (JsonParseException | NullPointerException e) {
+                // JsonParseException is thrown when the input cannot be parsed as JSON, for example '{"value"}'.
+                // NPE is often thrown when an unexpected `null` is contained within the request, e.g. '[null]'.
+                throw new SafeIllegalArgumentException(
+                        "Failed to parse request due to malformed content",
+                        e,
+                        SafeArg.of("contentType", getContentType()),
+                        SafeArg.of("type", type));
+            } catch (IOException e) {
+                throw new SafeIoException(
+                        "Failed to deserialize request",
+                        e,
+                        SafeArg.of("contentType", getContentType()),
+                        SafeArg.of("type", type));
+            }
+        }
+    }
+
+    private interface ValueReader<T> {
+        T read() throws IOException;
     }
 
     /** Returns a serializer for the Conjure JSON wire format. */
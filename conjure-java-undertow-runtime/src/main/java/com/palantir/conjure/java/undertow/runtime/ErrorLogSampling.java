@@ -0,0 +1,235 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.common.math.LongMath;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Limits the rate at which {@link ConjureExceptions} logs failures, independently for each error name, so that a
+ * burst of identical failures, for example during an outage of a downstream service, does not log a stack trace
+ * for every request. Each error name has a token bucket which allows a burst of logs before limiting them to a
+ * steady rate. Logs which are suppressed are counted exactly, and the counts are reported in a single summary line
+ * by the first failure handled after each summary interval. There is no background task: if failures stop after a
+ * burst, the counts are retained and reported by the next failure, however much later it occurs, and are not
+ * reported at all if no further failure is handled.
+ *
+ * <p>Install using {@link ConjureExceptions#withLogSampling(ErrorLogSampling)}.
+ */
+public final class ErrorLogSampling {
+
+    /** Does not suppress any logs. */
+    static final ErrorLogSampling UNLIMITED = new ErrorLogSampling();
+
+    // Bounds the number of buckets when error names are unexpectedly dynamic, further names share a bucket
+    private static final int MAX_ERROR_NAMES = 1000;
+    private static final String OTHER = "Other";
+
+    @Nullable
+    private final Limit defaultLimit;
+    private final Map<String, Limit> limits;
+    private final long summaryIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSummaryNanos;
+
+    private ErrorLogSampling() {
+        this.defaultLimit = null;
+        this.limits = Collections.emptyMap();
+        this.summaryIntervalNanos = Long.MAX_VALUE;
+        this.nanoClock = System::nanoTime;
+        this.nextSummaryNanos = new AtomicLong();
+    }
+
+    ErrorLogSampling(Builder builder, LongSupplier nanoClock) {
+        this.defaultLimit = builder.defaultLimit;
+        this.limits = new HashMap<>(builder.limits);
+        this.summaryIntervalNanos = builder.summaryInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.nextSummaryNanos = new AtomicLong(nanoClock.getAsLong() + summaryIntervalNanos);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Returns true if a failure with the given error name should be logged, otherwise counts it as suppressed. */
+    boolean tryAcquire(String errorName) {
+        if (this == UNLIMITED) {
+            return true;
+        }
+        Bucket bucket = bucket(errorName);
+        if (bucket == null) {
+            return true;
+        }
+        if (bucket.tryAcquire(nanoClock.getAsLong())) {
+            return true;
+        }
+        bucket.suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Returns the number of logs suppressed for each error name since the previous summary once the summary interval
+     * has elapsed, otherwise an empty map. Only a single caller observes each summary.
+     */
+    Map<String, Long> pollSuppressed() {
+        if (this == UNLIMITED) {
+            return Collections.emptyMap();
+        }
+        long now = nanoClock.getAsLong();
+        long next = nextSummaryNanos.get();
+        if (now - next < 0 || !nextSummaryNanos.compareAndSet(next, now + summaryIntervalNanos)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> suppressed = new TreeMap<>();
+        buckets.forEach((errorName, bucket) -> {
+            long count = bucket.suppressed.getAndSet(0);
+            if (count > 0) {
+                suppressed.put(errorName, count);
+            }
+        });
+        return suppressed;
+    }
+
+    @Nullable
+    private Bucket bucket(String errorName) {
+        Bucket bucket = buckets.get(errorName);
+        if (bucket != null) {
+            return bucket;
+        }
+        Limit limit = limits.getOrDefault(errorName, defaultLimit);
+        if (limit == null) {
+            return null;
+        }
+        if (buckets.size() >= MAX_ERROR_NAMES && !limits.containsKey(errorName)) {
+            return buckets.computeIfAbsent(OTHER, _name -> new Bucket(defaultLimit, nanoClock.getAsLong()));
+        }
+        return buckets.computeIfAbsent(errorName, _name -> new Bucket(limit, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Lock-free token bucket, tracked as the time at which the bucket would be full rather than as a number of
+     * tokens, so that refilling and taking a token are a single compare-and-set.
+     */
+    private static final class Bucket {
+        private final long nanosPerLog;
+        private final long burstNanos;
+        private final AtomicLong fullAtNanos;
+        private final AtomicLong suppressed = new AtomicLong();
+
+        Bucket(Limit limit, long nowNanos) {
+            this.nanosPerLog = limit.nanosPerLog;
+            this.burstNanos = limit.burstNanos;
+            this.fullAtNanos = new AtomicLong(nowNanos);
+        }
+
+        boolean tryAcquire(long nowNanos) {
+            while (true) {
+                long fullAt = fullAtNanos.get();
+                long start = fullAt - nowNanos > 0 ? fullAt : nowNanos;
+                long next = start + nanosPerLog;
+                if (next - nowNanos > burstNanos) {
+                    return false;
+                }
+                if (fullAtNanos.compareAndSet(fullAt, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Limit {
+        private final long nanosPerLog;
+        private final long burstNanos;
+
+        Limit(double logsPerSecond, int burst) {
+            Preconditions.checkArgument(
+                    logsPerSecond > 0, "logsPerSecond must be positive", SafeArg.of("logsPerSecond", logsPerSecond));
+            Preconditions.checkArgument(burst > 0, "burst must be positive", SafeArg.of("burst", burst));
+            this.nanosPerLog = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / logsPerSecond));
+            this.burstNanos = LongMath.saturatedMultiply(nanosPerLog, burst);
+        }
+    }
+
+    public static final class Builder {
+
+        @Nullable
+        private Limit defaultLimit = new Limit(1, 10);
+        private final Map<String, Limit> limits = new HashMap<>();
+        private Duration summaryInterval = Duration.ofMinutes(1);
+
+        private Builder() {}
+
+        /**
+         * Limit applied to each error name without a specific {@link #limit(String, double, int) limit}. Defaults to
+         * bursts of 10 logs, refilled at 1 log per second.
+         */
+        @CanIgnoreReturnValue
+        public Builder defaultLimit(double logsPerSecond, int burst) {
+            defaultLimit = new Limit(logsPerSecond, burst);
+            return this;
+        }
+
+        /** Allows all failures to be logged for error names without a specific limit. */
+        @CanIgnoreReturnValue
+        public Builder noDefaultLimit() {
+            defaultLimit = null;
+            return this;
+        }
+
+        /** Limit applied to failures with the given error name, for example {@code Default:Internal}. */
+        @CanIgnoreReturnValue
+        public Builder limit(String errorName, double logsPerSecond, int burst) {
+            Preconditions.checkNotNull(errorName, "errorName is required");
+            limits.put(errorName, new Limit(logsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * Minimum interval between summaries of the suppressed logs, which are only reported by a subsequent failure.
+         * Defaults to one minute.
+         */
+        @CanIgnoreReturnValue
+        public Builder summaryInterval(Duration value) {
+            Preconditions.checkNotNull(value, "summaryInterval is required");
+            Preconditions.checkArgument(
+                    !value.isNegative() && !value.isZero(),
+                    "summaryInterval must be positive",
+                    SafeArg.of("summaryInterval", value));
+            summaryInterval = value;
+            return this;
+        }
+
+        public ErrorLogSampling build() {
+            return new ErrorLogSampling(this, System::nanoTime);
+        }
+    }
+}
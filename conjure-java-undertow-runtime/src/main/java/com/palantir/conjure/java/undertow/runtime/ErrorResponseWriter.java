@@ -0,0 +1,239 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.api.errors.ErrorType;
+import com.palantir.conjure.java.api.errors.SerializableError;
+import com.palantir.logsafe.Arg;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes {@link SerializableError} JSON without Jackson. The fields which are fixed for an {@link ErrorType} are
+ * encoded once, so only the error instance id and parameters are encoded per response, and the body is written to
+ * the response with a single call and an exact {@code Content-Length}. The output is identical to serializing the
+ * equivalent {@link SerializableError#forException SerializableError}, except that it is never compressed.
+ *
+ * <p>Package private internal API.
+ */
+final class ErrorResponseWriter {
+
+    private static final String CONTENT_TYPE = "application/json";
+    // Bounds the cache in the unexpected case that error types are created dynamically
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+    private static final Map<ErrorType, byte[]> templates = new ConcurrentHashMap<>();
+    private static final byte[] SEPARATOR = ascii("\":\"");
+    private static final byte[] PARAMETERS = ascii("\",\"parameters\":{");
+    private static final byte[] END = ascii("}}");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+    private ErrorResponseWriter() {}
+
+    /** Writes the error, the caller is responsible for the status code. */
+    static void write(HttpServerExchange exchange, ErrorType errorType, String errorInstanceId, List<Arg<?>> args)
+            throws IOException {
+        write(exchange, template(errorType), errorInstanceId, args);
+    }
+
+    /** Writes an error with an arbitrary code and name, for example one propagated from a remote service. */
+    static void write(HttpServerExchange exchange, String errorCode, String errorName, String errorInstanceId)
+            throws IOException {
+        write(exchange, encodeTemplate(errorCode, errorName), errorInstanceId, List.of());
+    }
+
+    private static void write(
+            HttpServerExchange exchange, byte[] template, String errorInstanceId, List<Arg<?>> args)
+            throws IOException {
+        ConjureBodySerDe.safelyDrainRequestBody(exchange);
+        Buffer buffer = new Buffer(template.length + errorInstanceId.length() + 64);
+        buffer.write(template);
+        buffer.writeEscaped(errorInstanceId);
+        buffer.write(PARAMETERS);
+        boolean first = true;
+        for (int i = 0; i < args.size(); i++) {
+            String name = args.get(i).getName();
+            if (isRepeated(args, i, name)) {
+                continue;
+            }
+            if (!first) {
+                buffer.write(',');
+            }
+            first = false;
+            buffer.write('"');
+            buffer.writeEscaped(name);
+            buffer.write(SEPARATOR);
+            buffer.writeEscaped(Objects.toString(lastValue(args, i, name)));
+            buffer.write('"');
+        }
+        buffer.write(END);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, CONTENT_TYPE);
+        exchange.setResponseContentLength(buffer.size);
+        OutputStream output = exchange.getOutputStream();
+        output.write(buffer.bytes, 0, buffer.size);
+    }
+
+    /** Returns true if an arg before {@code index} has the same name, which has already been written. */
+    private static boolean isRepeated(List<Arg<?>> args, int index, String name) {
+        for (int i = 0; i < index; i++) {
+            if (name.equals(args.get(i).getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parameters are a map, so as for {@link SerializableError#forException} a repeated name is written at the
+     * position of its first arg with the value of its last.
+     */
+    private static Object lastValue(List<Arg<?>> args, int index, String name) {
+        for (int i = args.size() - 1; i > index; i--) {
+            Arg<?> arg = args.get(i);
+            if (name.equals(arg.getName())) {
+                return arg.getValue();
+            }
+        }
+        return args.get(index).getValue();
+    }
+
+    private static byte[] template(ErrorType errorType) {
+        byte[] template = templates.get(errorType);
+        if (template != null) {
+            return template;
+        }
+        template = encodeTemplate(errorType.code().name(), errorType.name());
+        if (templates.size() < MAX_CACHED_TEMPLATES) {
+            templates.put(errorType, template);
+        }
+        return template;
+    }
+
+    /** Encodes the error prefix up to the opening quote of the error instance id. */
+    private static byte[] encodeTemplate(String errorCode, String errorName) {
+        Buffer buffer = new Buffer(64 + errorName.length());
+        buffer.write(ascii("{\"errorCode\":\""));
+        buffer.writeEscaped(errorCode);
+        buffer.write(ascii("\",\"errorName\":\""));
+        buffer.writeEscaped(errorName);
+        buffer.write(ascii("\",\"errorInstanceId\":\""));
+        return Arrays.copyOf(buffer.bytes, buffer.size);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** Growable byte array which escapes strings in the same way as Jackson's default JSON generator. */
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        void writeEscaped(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch < 0x80) {
+                    writeAscii(ch);
+                } else if (ch < 0x800) {
+                    write(0xC0 | (ch >> 6));
+                    write(0x80 | (ch & 0x3F));
+                } else if (!Character.isSurrogate(ch)) {
+                    write(0xE0 | (ch >> 12));
+                    write(0x80 | ((ch >> 6) & 0x3F));
+                    write(0x80 | (ch & 0x3F));
+                } else if (Character.isHighSurrogate(ch)
+                        && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+                    write(0xF0 | (codePoint >> 18));
+                    write(0x80 | ((codePoint >> 12) & 0x3F));
+                    write(0x80 | ((codePoint >> 6) & 0x3F));
+                    write(0x80 | (codePoint & 0x3F));
+                } else {
+                    // Unpaired surrogates cannot be encoded, matching String.getBytes
+                    write('?');
+                }
+            }
+        }
+
+        private void writeAscii(char ch) {
+            if (ch == '"' || ch == '\\') {
+                write('\\');
+                write(ch);
+            } else if (ch >= 0x20) {
+                write(ch);
+            } else {
+                writeControl(ch);
+            }
+        }
+
+        private void writeControl(char ch) {
+            write('\\');
+            switch (ch) {
+                case '\b':
+                    write('b');
+                    break;
+                case '\t':
+                    write('t');
+                    break;
+                case '\n':
+                    write('n');
+                    break;
+                case '\f':
+                    write('f');
+                    break;
+                case '\r':
+                    write('r');
+                    break;
+                default:
+                    write('u');
+                    write('0');
+                    write('0');
+                    write(HEX[ch >> 4]);
+                    write(HEX[ch & 0xF]);
+            }
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.api.errors.QosException;
+import com.palantir.conjure.java.undertow.lib.ExceptionHandler;
+import io.undertow.server.Connectors;
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.util.SameThreadExecutor;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+
+/**
+ * Alternative to {@link BlockingHandler} which dispatches blocking endpoint handlers to a configured
+ * {@link Executor}, for example a virtual-thread-per-task executor or a pool dedicated to the endpoint, rather than
+ * the Undertow worker pool. The number of requests to the endpoint which may be in progress at once is optionally
+ * bounded, additional requests fail with a {@link QosException#unavailable() 503} response without being dispatched.
+ * Requests which the executor rejects, for example because its queue is full, fail in the same way.
+ *
+ * <p>Package private internal API.
+ */
+final class ExecutorDispatchHandler implements HttpHandler {
+
+    private final HttpHandler next;
+
+    @Nullable
+    private final Executor executor;
+
+    @Nullable
+    private final Semaphore permits;
+
+    private final ExchangeCompletionListener releasePermit;
+    private final HttpHandler rejected;
+    private final HttpHandler dispatchRejected;
+
+    ExecutorDispatchHandler(
+            HttpHandler next,
+            @Nullable Executor executor,
+            int maxConcurrentRequests,
+            ExceptionHandler exceptionHandler) {
+        this.next = next;
+        this.executor = executor;
+        this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        this.releasePermit = SafeExchangeCompletionListener.of(_exchange -> permits.release());
+        this.rejected = exchange -> exceptionHandler.handle(exchange, QosException.unavailable());
+        this.dispatchRejected = exchange -> exchange.dispatch(rejected);
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        exchange.startBlocking();
+        boolean admitted = permits == null || permits.tryAcquire();
+        if (permits != null && admitted) {
+            // Released once the response is complete, which may be after an asynchronous endpoint returns
+            exchange.addExchangeCompleteListener(releasePermit);
+        }
+        HttpHandler handler = admitted ? next : rejected;
+        if (!exchange.isInIoThread()) {
+            handler.handleRequest(exchange);
+        } else if (executor == null || !admitted) {
+            // Rejected requests are not dispatched to the executor, the error is written from the worker pool
+            exchange.dispatch(handler);
+        } else {
+            // Equivalent to exchange.dispatch(executor, handler), except that requests rejected by the executor
+            // receive a conjure error rather than an empty response.
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () -> execute(executor, exchange, handler));
+        }
+    }
+
+    private void execute(Executor target, HttpServerExchange exchange, HttpHandler handler) {
+        try {
+            target.execute(() -> Connectors.executeRootHandler(handler, exchange));
+        } catch (RejectedExecutionException e) {
+            Connectors.executeRootHandler(dispatchRejected, exchange);
+        }
+    }
+}
@@ -31,6 +31,8 @@ final class FrameworkException extends RuntimeException implements SafeLoggable
             ErrorType.create(ErrorType.Code.INVALID_ARGUMENT, "Conjure:UnprocessableEntity");
     private static final ErrorType UNSUPPORTED_MEDIA_TYPE =
             ErrorType.create(ErrorType.Code.INVALID_ARGUMENT, "Conjure:UnsupportedMediaType");
+    private static final ErrorType REQUEST_ENTITY_TOO_LARGE =
+            ErrorType.create(ErrorType.Code.REQUEST_ENTITY_TOO_LARGE, "Conjure:RequestEntityTooLarge");
 
     private final String logMessage;
     private final List<Arg<?>> arguments;
@@ -54,6 +56,11 @@ final class FrameworkException extends RuntimeException implements SafeLoggable
         return new FrameworkException(message, UNSUPPORTED_MEDIA_TYPE, StatusCodes.UNSUPPORTED_MEDIA_TYPE, null, args);
     }
 
+    static FrameworkException requestEntityTooLarge(@CompileTimeConstant String message, Arg<?>... args) {
+        return new FrameworkException(
+                message, REQUEST_ENTITY_TOO_LARGE, StatusCodes.REQUEST_ENTITY_TOO_LARGE, null, args);
+    }
+
     @Override
     public String getLogMessage() {
         return logMessage;
@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit which adapts to the latency of completed requests. The limit grows while short-term latency
+ * remains close to the long-term average, shrinks in proportion to the increase when requests begin to queue, and
+ * backs off multiplicatively when requests fail due to overload.
+ *
+ * <p>Admission is lock-free and completions never wait. Limit updates are serialized, but a completion which finds
+ * another update in progress skips its update, so under heavy contention the limit adapts to a sample of the
+ * completed requests, including overload backoff.
+ *
+ * <p>Package private internal API.
+ */
+final class GradientLimit {
+
+    /** Short-term latency may exceed the long-term average by this ratio before the limit is reduced. */
+    private static final double TOLERANCE = 1.5;
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Lock updateLock = new ReentrantLock();
+    private volatile int limit;
+    private volatile double retryAfterNanos;
+
+    // Guarded by updateLock
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /** Returns true if the request may proceed, in which case {@link #release} must be called once it completes. */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request which took {@code rttNanos} to complete, {@code dropped} requests failed due to overload
+     * and do not contribute latency samples.
+     */
+    void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        if (updateLock.tryLock()) {
+            try {
+                update(rttNanos, current, dropped);
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    /** Estimates how long a rejected client should wait before retrying, based on the long-term latency. */
+    Duration retryAfter() {
+        long seconds = (long) Math.ceil(retryAfterNanos / TimeUnit.SECONDS.toNanos(1));
+        return Duration.ofSeconds(Math.max(1, seconds));
+    }
+
+    private void update(long rttNanos, int inFlightAtCompletion, boolean dropped) {
+        if (dropped) {
+            setLimit(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        } else {
+            shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+        // Allow the long-term average to recover quickly after a sustained period of high latency
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+        retryAfterNanos = longRttNanos;
+        // Latency measured while most of the limit is unused says little about the capacity of the endpoint
+        if (inFlightAtCompletion < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1, TOLERANCE * longRttNanos / shortRttNanos));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        setLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private void setLimit(double value) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, value));
+        limit = (int) estimatedLimit;
+    }
+}
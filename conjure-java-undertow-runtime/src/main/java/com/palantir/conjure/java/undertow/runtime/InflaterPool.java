@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pool of {@link Inflater} instances. Each inflater holds native decompression state which is expensive to
+ * allocate and is only released by {@link Inflater#end()}, so instances are reset and reused across requests.
+ *
+ * <p>Package private internal API.
+ */
+final class InflaterPool {
+
+    private final boolean nowrap;
+    private final BlockingQueue<Inflater> inflaters;
+
+    /**
+     * Creates a pool of inflaters. Raw deflate streams without the zlib wrapper, used by gzip, are expected when
+     * {@code nowrap} is true.
+     */
+    InflaterPool(boolean nowrap, int capacity) {
+        this.nowrap = nowrap;
+        this.inflaters = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Inflater acquire() {
+        Inflater inflater = inflaters.poll();
+        return inflater == null ? new Inflater(nowrap) : inflater;
+    }
+
+    void release(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+}
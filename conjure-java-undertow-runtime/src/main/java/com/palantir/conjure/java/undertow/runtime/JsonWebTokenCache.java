@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.math.LongMath;
+import com.palantir.tokens.auth.UnverifiedJsonWebToken;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of {@link UnverifiedJsonWebToken#tryParse parsed} bearer tokens, so that clients which send the same
+ * token with every request do not pay for decoding it each time. Entries are evicted when the cache is full, and are
+ * never used after the {@code exp} claim of the token. Tokens which are not JSON web tokens are cached as well, so
+ * that they are not repeatedly parsed. Token contents are never logged.
+ *
+ * <p>Package private internal API.
+ */
+final class JsonWebTokenCache {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final Cache<String, Entry> cache;
+    private final LongSupplier clockMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    JsonWebTokenCache(int maximumSize) {
+        this(maximumSize, System::currentTimeMillis);
+    }
+
+    JsonWebTokenCache(int maximumSize, LongSupplier clockMillis) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.clockMillis = clockMillis;
+    }
+
+    Optional<UnverifiedJsonWebToken> get(String token) {
+        long nowMillis = clockMillis.getAsLong();
+        Entry entry = cache.getIfPresent(token);
+        if (entry != null) {
+            if (nowMillis < entry.expiresAtMillis) {
+                hits.increment();
+                return entry.jwt;
+            }
+            cache.asMap().remove(token, entry);
+        }
+        misses.increment();
+        Optional<UnverifiedJsonWebToken> jwt = UnverifiedJsonWebToken.tryParse(token);
+        // Only JSON web tokens are decoded again to read the exp claim, other tokens are cached without expiry
+        long expiresAtMillis = jwt.isPresent() ? expiresAtMillis(token) : NO_EXPIRY;
+        if (nowMillis < expiresAtMillis) {
+            cache.put(token, new Entry(jwt, expiresAtMillis));
+        }
+        return jwt;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    /** Reads the {@code exp} claim, in seconds since the epoch, from the token payload if present. */
+    private static long expiresAtMillis(String token) {
+        int payloadStart = token.indexOf('.') + 1;
+        int payloadEnd = token.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0) {
+            return NO_EXPIRY;
+        }
+        // Exceptions are not logged or rethrown because they may include token contents
+        try (JsonParser parser =
+                JSON.createParser(Base64.getUrlDecoder().decode(token.substring(payloadStart, payloadEnd)))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return NO_EXPIRY;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("exp".equals(name) && value != null && value.isNumeric()) {
+                    return LongMath.saturatedMultiply(parser.getLongValue(), TimeUnit.SECONDS.toMillis(1));
+                }
+                parser.skipChildren();
+            }
+            return NO_EXPIRY;
+        } catch (IOException | RuntimeException e) {
+            return NO_EXPIRY;
+        }
+    }
+
+    private static final class Entry {
+        private final Optional<UnverifiedJsonWebToken> jwt;
+        private final long expiresAtMillis;
+
+        Entry(Optional<UnverifiedJsonWebToken> jwt, long expiresAtMillis) {
+            this.jwt = jwt;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
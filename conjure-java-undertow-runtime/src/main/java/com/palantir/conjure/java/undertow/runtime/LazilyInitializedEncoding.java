@@ -16,9 +16,13 @@
 
 package com.palantir.conjure.java.undertow.runtime;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.base.Suppliers;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
 import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.exceptions.SafeIllegalStateException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -32,7 +36,7 @@ import java.util.function.Supplier;
  * Note that this results in the first request to a given endpoint being more expensive than it would be
  * otherwise, though this is already the case to an extent before the JIT compiler can optimize the path.
  */
-final class LazilyInitializedEncoding implements Encoding {
+final class LazilyInitializedEncoding implements NonBlockingEncoding, OptionalBodyEncoding {
 
     private final Encoding delegate;
 
@@ -60,6 +64,48 @@ final class LazilyInitializedEncoding implements Encoding {
         return delegate.supportsContentType(contentType);
     }
 
+    @Override
+    public boolean supportsOptionalBodies() {
+        return delegate instanceof OptionalBodyEncoding && ((OptionalBodyEncoding) delegate).supportsOptionalBodies();
+    }
+
+    @Override
+    public <T> Deserializer<T> optionalDeserializer(TypeMarker<T> type) {
+        if (!supportsOptionalBodies()) {
+            throw new SafeIllegalStateException(
+                    "Encoding does not support optional bodies", SafeArg.of("contentType", getContentType()));
+        }
+        return new LazilyInitializedDeserializer<>(() -> ((OptionalBodyEncoding) delegate).optionalDeserializer(type));
+    }
+
+    @Override
+    public boolean supportsNonBlockingParsing() {
+        return delegate instanceof NonBlockingEncoding && ((NonBlockingEncoding) delegate).supportsNonBlockingParsing();
+    }
+
+    @Override
+    public JsonParser createNonBlockingParser() throws IOException {
+        return nonBlockingDelegate().createNonBlockingParser();
+    }
+
+    @Override
+    public TokenBuffer createTokenBuffer(JsonParser parser) {
+        return nonBlockingDelegate().createTokenBuffer(parser);
+    }
+
+    @Override
+    public <T> BufferedDeserializer<T> bufferedDeserializer(TypeMarker<T> type) {
+        return new LazilyInitializedBufferedDeserializer<>(() -> nonBlockingDelegate().bufferedDeserializer(type));
+    }
+
+    private NonBlockingEncoding nonBlockingDelegate() {
+        if (!supportsNonBlockingParsing()) {
+            throw new SafeIllegalStateException(
+                    "Encoding does not support non-blocking parsing", SafeArg.of("contentType", getContentType()));
+        }
+        return (NonBlockingEncoding) delegate;
+    }
+
     @Override
     public String toString() {
         return "LazilyInitializedEncoding{delegate=" + delegate + '}';
@@ -92,4 +138,18 @@ final class LazilyInitializedEncoding implements Encoding {
             return delegate.get().deserialize(input);
         }
     }
+
+    private static final class LazilyInitializedBufferedDeserializer<T> implements BufferedDeserializer<T> {
+
+        private final Supplier<BufferedDeserializer<T>> delegate;
+
+        LazilyInitializedBufferedDeserializer(Supplier<BufferedDeserializer<T>> delegate) {
+            this.delegate = Suppliers.memoize(delegate::get);
+        }
+
+        @Override
+        public T deserialize(BufferedTokens tokens) throws IOException {
+            return delegate.get().deserialize(tokens);
+        }
+    }
 }
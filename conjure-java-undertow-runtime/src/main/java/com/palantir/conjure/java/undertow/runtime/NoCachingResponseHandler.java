@@ -31,6 +31,10 @@ final class NoCachingResponseHandler implements HttpHandler {
 
     private static final String DO_NOT_CACHE = "no-cache, no-store, must-revalidate";
 
+    static final StaticResponseHeaders HEADERS = StaticResponseHeaders.builder()
+            .put(Headers.CACHE_CONTROL, DO_NOT_CACHE)
+            .build();
+
     private final HttpHandler next;
 
     NoCachingResponseHandler(HttpHandler next) {
@@ -39,7 +43,7 @@ final class NoCachingResponseHandler implements HttpHandler {
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, DO_NOT_CACHE);
+        HEADERS.apply(exchange);
         next.handleRequest(exchange);
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import java.io.IOException;
+
+/**
+ * An {@link Encoding} which may parse request bodies incrementally as bytes arrive, without blocking the calling
+ * thread. Parsed tokens are buffered until the body is complete, then bound to the requested type.
+ *
+ * <p>Package private internal API.
+ */
+interface NonBlockingEncoding extends Encoding {
+
+    /** Returns true if {@link #createNonBlockingParser()} is supported by this encoding. */
+    boolean supportsNonBlockingParsing();
+
+    /**
+     * Creates a new parser which must be fed input using its
+     * {@link JsonParser#getNonBlockingInputFeeder() non-blocking input feeder}.
+     */
+    JsonParser createNonBlockingParser() throws IOException;
+
+    /** Creates a buffer to hold tokens produced by a parser from {@link #createNonBlockingParser()}. */
+    TokenBuffer createTokenBuffer(JsonParser parser);
+
+    /**
+     * Creates a new {@link BufferedDeserializer} for the requested type. Failures are reported as they would be by
+     * {@link Encoding.Deserializer}.
+     */
+    <T> BufferedDeserializer<T> bufferedDeserializer(TypeMarker<T> type);
+
+    /** Request body which has been parsed into tokens. */
+    interface BufferedTokens {
+
+        /**
+         * Returns a parser over the buffered tokens, or throws the failure which occurred while the request body was
+         * being read.
+         */
+        JsonParser asParser() throws IOException;
+    }
+
+    interface BufferedDeserializer<T> {
+
+        /** Reads a type-{@link T} value from buffered tokens. Inputs and outputs must never be null. */
+        T deserialize(BufferedTokens tokens) throws IOException;
+    }
+}
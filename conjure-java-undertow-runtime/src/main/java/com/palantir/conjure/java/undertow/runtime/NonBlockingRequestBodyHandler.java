@@ -0,0 +1,216 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.logger.SafeLogger;
+import com.palantir.logsafe.logger.SafeLoggerFactory;
+import io.undertow.io.Receiver;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Reads request bodies on the IO thread using a non-blocking parser, and only continues to the next handler (which
+ * dispatches to the server task pool) once the entire body has been received. This prevents slow clients from holding
+ * task pool threads while they upload request bodies. Failures are not handled here, they're recorded and rethrown
+ * when the body is deserialized so that responses match the blocking implementation.
+ *
+ * <p>Requests which are already running on a task pool thread, which do not have a body, which use a
+ * {@code Content-Encoding}, which use a {@code Content-Type} that cannot be parsed without blocking, or which declare a
+ * {@code Content-Length} larger than the buffering limit are passed through unmodified. Bodies without a
+ * {@code Content-Length} which exceed the limit are drained without buffering, and fail with a {@code 413} response.
+ */
+final class NonBlockingRequestBodyHandler implements HttpHandler {
+
+    private static final SafeLogger log = SafeLoggerFactory.get(NonBlockingRequestBodyHandler.class);
+
+    static final AttachmentKey<BufferedRequestBody> BUFFERED_REQUEST_BODY =
+            AttachmentKey.create(BufferedRequestBody.class);
+
+    private final HttpHandler next;
+    private final ContentNegotiation negotiation;
+    private final NonBlockingEncoding[] encodings;
+    private final long maxBytes;
+
+    /**
+     * Creates a new handler, {@code encodings} are indexed consistently with {@code negotiation} and contain null
+     * values for encodings which do not support non-blocking parsing. At most {@code maxBytes} of each request body
+     * are buffered.
+     */
+    NonBlockingRequestBodyHandler(
+            HttpHandler next, ContentNegotiation negotiation, NonBlockingEncoding[] encodings, long maxBytes) {
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+        this.next = next;
+        this.negotiation = negotiation;
+        this.encodings = encodings;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        NonBlockingEncoding encoding =
+                exchange.isInIoThread() && hasRequestBody(exchange) ? getRequestEncoding(exchange) : null;
+        if (encoding == null) {
+            next.handleRequest(exchange);
+            return;
+        }
+        JsonParser parser = encoding.createNonBlockingParser();
+        BodyReader reader = new BodyReader(next, parser, encoding.createTokenBuffer(parser), maxBytes);
+        exchange.getRequestReceiver().receivePartialBytes(reader, reader);
+    }
+
+    private boolean hasRequestBody(HttpServerExchange exchange) {
+        // Compressed bodies are decoded by the blocking deserializer, see RequestDecompression. Bodies which are
+        // known to exceed the limit are streamed by the blocking deserializer rather than buffered.
+        long contentLength = exchange.getRequestContentLength();
+        return contentLength != 0
+                && contentLength <= maxBytes
+                && !exchange.isRequestComplete()
+                && !RequestDecompression.isEncoded(exchange);
+    }
+
+    @Nullable
+    private NonBlockingEncoding getRequestEncoding(HttpServerExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+        if (contentType == null) {
+            return null;
+        }
+        int index = negotiation.requestEncoding(contentType);
+        return index == ContentNegotiation.UNSUPPORTED ? null : encodings[index];
+    }
+
+    /** Tokens parsed from a request body by the {@link NonBlockingRequestBodyHandler}. */
+    static final class BufferedRequestBody implements NonBlockingEncoding.BufferedTokens {
+
+        private final TokenBuffer tokens;
+
+        @Nullable
+        private final IOException failure;
+
+        @Nullable
+        private final FrameworkException rejection;
+
+        private BufferedRequestBody(
+                TokenBuffer tokens, @Nullable IOException failure, @Nullable FrameworkException rejection) {
+            this.tokens = tokens;
+            this.failure = failure;
+            this.rejection = rejection;
+        }
+
+        /** Returns true if the request body did not contain any tokens, and no failure occurred. */
+        boolean isEmpty() {
+            return failure == null && rejection == null && tokens.firstToken() == null;
+        }
+
+        @Override
+        public JsonParser asParser() throws IOException {
+            if (rejection != null) {
+                throw rejection;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return tokens.asParser();
+        }
+    }
+
+    private static final class BodyReader implements Receiver.PartialBytesCallback, Receiver.ErrorCallback {
+
+        private final HttpHandler next;
+        private final JsonParser parser;
+        private final TokenBuffer tokens;
+        private final long maxBytes;
+        private long bytes;
+
+        @Nullable
+        private IOException failure;
+
+        @Nullable
+        private FrameworkException rejection;
+
+        BodyReader(HttpHandler next, JsonParser parser, TokenBuffer tokens, long maxBytes) {
+            this.next = next;
+            this.parser = parser;
+            this.tokens = tokens;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void handle(HttpServerExchange exchange, byte[] message, boolean last) {
+            bytes += message.length;
+            if (bytes > maxBytes && rejection == null) {
+                rejection = FrameworkException.requestEntityTooLarge(
+                        "Request body exceeds the non-blocking buffer limit", SafeArg.of("limit", maxBytes));
+            }
+            // After a failure the remainder of the body is drained without parsing to allow connection reuse.
+            if (failure == null && rejection == null) {
+                try {
+                    ByteArrayFeeder feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+                    if (message.length > 0) {
+                        feeder.feedInput(message, 0, message.length);
+                    }
+                    if (last) {
+                        feeder.endOfInput();
+                    }
+                    copyAvailableTokens();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (last) {
+                complete(exchange);
+            }
+        }
+
+        @Override
+        public void error(HttpServerExchange exchange, IOException exception) {
+            if (failure == null) {
+                failure = exception;
+            }
+            complete(exchange);
+        }
+
+        private void copyAvailableTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
+            }
+        }
+
+        private void complete(HttpServerExchange exchange) {
+            exchange.putAttachment(BUFFERED_REQUEST_BODY, new BufferedRequestBody(tokens, failure, rejection));
+            try {
+                next.handleRequest(exchange);
+            } catch (Exception e) {
+                // The next handler dispatches to the task pool where exceptions are handled, this is not expected.
+                log.error("Failed to continue request processing after reading the request body", e);
+                exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                exchange.endExchange();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+
+/**
+ * An {@link Encoding} which detects empty request bodies while parsing them, allowing optional request bodies to be
+ * read without first reading ahead of the parser to check for end of input.
+ *
+ * <p>Package private internal API.
+ */
+interface OptionalBodyEncoding extends Encoding {
+
+    /** Returns true if {@link #optionalDeserializer(TypeMarker)} is supported by this encoding. */
+    boolean supportsOptionalBodies();
+
+    /**
+     * Creates a new {@link Deserializer} for an optional type, for example {@code Optional<String>} or
+     * {@code OptionalInt}, which returns the empty value when the input stream is empty.
+     */
+    <T> Deserializer<T> optionalDeserializer(TypeMarker<T> type);
+}
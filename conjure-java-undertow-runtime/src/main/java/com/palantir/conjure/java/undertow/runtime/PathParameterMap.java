@@ -0,0 +1,159 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.lib.PathParameters;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Map view over path parameters extracted by the {@link PathRouter}, backed by the parameter names of the matched
+ * template and the values in template order. Endpoints generally have few path parameters, so lookups scan the names
+ * rather than hashing, and generated code reads parameters by index using {@link PathParameters}.
+ *
+ * <p>Parameters cannot be added or removed, but values may be replaced using {@link Entry#setValue(Object)}, which
+ * {@link io.undertow.server.handlers.URLDecodingHandler} uses to decode them in place when the server disables
+ * {@link io.undertow.UndertowOptions#DECODE_URL}.
+ *
+ * <p>Package private internal API.
+ */
+final class PathParameterMap extends AbstractMap<String, String> implements PathParameters {
+
+    private final String[] names;
+    private final String[] values;
+
+    /** Creates a new map over parameter names and their values, which must have the same length. */
+    PathParameterMap(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    @Nullable
+    @Override
+    public String get(int index, String name) {
+        if (index >= 0 && index < names.length && names[index].equals(name)) {
+            return values[index];
+        }
+        return get(name);
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Nullable
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return new ParameterEntry(index++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+
+    /** Entry which writes replaced values through to the map. */
+    private final class ParameterEntry implements Entry<String, String> {
+        private final int index;
+
+        ParameterEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return names[index];
+        }
+
+        @Override
+        public String getValue() {
+            return values[index];
+        }
+
+        @Override
+        public String setValue(String value) {
+            String previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.math.IntMath;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.RoutingHandler;
+import io.undertow.util.HttpString;
+import io.undertow.util.PathTemplateMatch;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Routes requests using a trie of path template segments compiled once when the {@link ConjureHandler} is built.
+ * Literal segments are matched before parameters, falling back to parameters when no literal route matches the
+ * remainder of the path, so the cost of routing depends on the number of path segments rather than the number of
+ * endpoints. Literal segments are compared in place against the request path, and substrings are only created for
+ * the parameter values of the matched route.
+ *
+ * <p>Matches behave like the Undertow {@link RoutingHandler} they replace: the {@link PathTemplateMatch} attachment
+ * is set, path parameters are added to the query parameters, a trailing slash is ignored, and requests without a
+ * route for the method are passed to the fallback handler. Templates which are not composed of whole literal and
+ * {@code {parameter}} segments are delegated to a {@link RoutingHandler}.
+ *
+ * <p>Package private internal API.
+ */
+final class PathRouter implements HttpHandler {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final Node root;
+    private final HttpHandler fallback;
+
+    private PathRouter(Node root, HttpHandler fallback) {
+        this.root = root;
+        this.fallback = fallback;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        String path = exchange.getRelativePath();
+        // A trailing slash is ignored, matching RoutingHandler
+        int limit = path.length() > 1 && path.charAt(path.length() - 1) == '/' ? path.length() - 1 : path.length();
+        int start = !path.isEmpty() && path.charAt(0) == '/' ? 1 : 0;
+        Route route = find(root, path, start, limit, exchange.getRequestMethod());
+        if (route == null) {
+            fallback.handleRequest(exchange);
+            return;
+        }
+        String[] names = route.parameterNames;
+        // Values are replaced in place when URLs are decoded, so each request has its own array
+        String[] values = names.length == 0 ? NO_VALUES : parameterValues(route, path, start, limit);
+        for (int i = 0; i < names.length; i++) {
+            exchange.addQueryParam(names[i], values[i]);
+        }
+        exchange.putAttachment(
+                PathTemplateMatch.ATTACHMENT_KEY,
+                new PathTemplateMatch(route.template, new PathParameterMap(names, values)));
+        route.handler.handleRequest(exchange);
+    }
+
+    /** Finds the route for the path segments from {@code start} to {@code limit}. */
+    @Nullable
+    private static Route find(Node node, String path, int start, int limit, HttpString method) {
+        if (start >= limit) {
+            return node.routes.get(method);
+        }
+        int end = segmentEnd(path, start, limit);
+        Node literal = node.literal(path, start, end);
+        if (literal != null) {
+            Route route = find(literal, path, end + 1, limit, method);
+            if (route != null) {
+                return route;
+            }
+        }
+        Node parameter = node.parameter;
+        if (parameter != null && end > start) {
+            return find(parameter, path, end + 1, limit, method);
+        }
+        return null;
+    }
+
+    /** Returns the values of the parameter segments of a path matched by the route, in template order. */
+    private static String[] parameterValues(Route route, String path, int start, int limit) {
+        int[] segments = route.parameterSegments;
+        String[] values = new String[segments.length];
+        int segmentStart = start;
+        int segment = 0;
+        int parameter = 0;
+        while (parameter < values.length) {
+            int end = segmentEnd(path, segmentStart, limit);
+            if (segment == segments[parameter]) {
+                values[parameter++] = path.substring(segmentStart, end);
+            }
+            segment++;
+            segmentStart = end + 1;
+        }
+        return values;
+    }
+
+    private static int segmentEnd(String path, int start, int limit) {
+        int end = path.indexOf('/', start);
+        return end < 0 || end > limit ? limit : end;
+    }
+
+    static final class Builder {
+
+        private final MutableNode root = new MutableNode();
+        private final RoutingHandler delegate = Handlers.routing().setInvalidMethodHandler(null);
+        private boolean delegated;
+
+        private Builder() {}
+
+        @CanIgnoreReturnValue
+        Builder add(HttpString method, String template, HttpHandler handler) {
+            List<String> segments = segments(template);
+            if (segments == null) {
+                delegate.add(method, template, handler);
+                delegated = true;
+                return this;
+            }
+            MutableNode node = root;
+            List<String> names = new ArrayList<>();
+            int[] parameterSegments = new int[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (isParameter(segment)) {
+                    parameterSegments[names.size()] = i;
+                    names.add(segment.substring(1, segment.length() - 1));
+                    if (node.parameter == null) {
+                        node.parameter = new MutableNode();
+                    }
+                    node = node.parameter;
+                } else {
+                    node = node.literals.computeIfAbsent(segment, _key -> new MutableNode());
+                }
+            }
+            if (node.routes.containsKey(method)) {
+                throw new SafeIllegalArgumentException(
+                        "Multiple routes are registered for the same path",
+                        SafeArg.of("method", method),
+                        SafeArg.of("template", template));
+            }
+            int[] segmentIndexes = Arrays.copyOf(parameterSegments, names.size());
+            node.routes.put(method, new Route(handler, template, names.toArray(new String[0]), segmentIndexes));
+            return this;
+        }
+
+        PathRouter build(HttpHandler fallback) {
+            return new PathRouter(root.compile(), delegated ? delegate.setFallbackHandler(fallback) : fallback);
+        }
+
+        /** Splits the template into segments, or returns null if it cannot be represented in the trie. */
+        @Nullable
+        private static List<String> segments(String template) {
+            List<String> segments = new ArrayList<>();
+            int start = template.startsWith("/") ? 1 : 0;
+            int length =
+                    template.endsWith("/") && template.length() > start ? template.length() - 1 : template.length();
+            while (start < length) {
+                int end = template.indexOf('/', start);
+                if (end < 0 || end > length) {
+                    end = length;
+                }
+                String segment = template.substring(start, end);
+                boolean parameter = isParameter(segment) && segment.indexOf('{', 1) < 0;
+                if (segment.isEmpty()
+                        || (!parameter && (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0))
+                        || segment.indexOf('*') >= 0) {
+                    return null;
+                }
+                segments.add(segment);
+                start = end + 1;
+            }
+            return segments;
+        }
+
+        private static boolean isParameter(String segment) {
+            return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+        }
+    }
+
+    private static final class MutableNode {
+
+        private final Map<String, MutableNode> literals = new HashMap<>();
+        private final Map<HttpString, Route> routes = new HashMap<>();
+
+        @Nullable
+        private MutableNode parameter;
+
+        Node compile() {
+            int capacity = literals.isEmpty() ? 0 : IntMath.ceilingPowerOfTwo(literals.size() * 2);
+            String[] segments = new String[capacity];
+            Node[] children = new Node[capacity];
+            for (Map.Entry<String, MutableNode> literal : literals.entrySet()) {
+                String segment = literal.getKey();
+                int slot = Node.slot(segment.hashCode(), capacity - 1);
+                while (segments[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                segments[slot] = segment;
+                children[slot] = literal.getValue().compile();
+            }
+            return new Node(
+                    segments, children, parameter == null ? null : parameter.compile(), ImmutableMap.copyOf(routes));
+        }
+    }
+
+    private static final class Node {
+
+        // Open addressing table of literal segments, at most half full, with the child node of each segment at the
+        // same index. Segments are hashed like String.hashCode so that the table can be probed with a region of the
+        // request path.
+        private final String[] segments;
+        private final Node[] children;
+
+        @Nullable
+        private final Node parameter;
+
+        private final ImmutableMap<HttpString, Route> routes;
+
+        Node(String[] segments, Node[] children, @Nullable Node parameter, ImmutableMap<HttpString, Route> routes) {
+            this.segments = segments;
+            this.children = children;
+            this.parameter = parameter;
+            this.routes = routes;
+        }
+
+        /** Returns the child for the literal segment of {@code path} from {@code start} to {@code end}, if any. */
+        @Nullable
+        Node literal(String path, int start, int end) {
+            if (segments.length == 0) {
+                return null;
+            }
+            int length = end - start;
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int mask = segments.length - 1;
+            for (int slot = slot(hash, mask); ; slot = (slot + 1) & mask) {
+                String segment = segments[slot];
+                if (segment == null) {
+                    return null;
+                }
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return children[slot];
+                }
+            }
+        }
+
+        static int slot(int hash, int mask) {
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    private static final class Route {
+
+        private final HttpHandler handler;
+        private final String template;
+        private final String[] parameterNames;
+        // Index of the path segment holding each parameter
+        private final int[] parameterSegments;
+
+        Route(HttpHandler handler, String template, String[] parameterNames, int[] parameterSegments) {
+            this.handler = handler;
+            this.template = template;
+            this.parameterNames = parameterNames;
+            this.parameterSegments = parameterSegments;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.logsafe.Preconditions;
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.io.BufferWritableOutputStream;
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Buffers a serialized response body in buffers from the connection {@link ByteBufferPool}, allowing the response
+ * to be sent with an exact {@code Content-Length} using a single gathering write once serialization has completed.
+ * Bodies larger than the configured limit are streamed to the exchange as they would be without buffering.
+ *
+ * <p>Nothing is sent until {@link #commit()} is called, so a failure during serialization of a buffered body leaves
+ * the response untouched. Buffers are returned to the pool by {@link #close()}, which must always be called.
+ *
+ * <p>Package private internal API.
+ */
+final class PooledResponseOutputStream extends OutputStream {
+
+    private final HttpServerExchange exchange;
+    private final ByteBufferPool pool;
+    private final int limit;
+    private PooledByteBuffer[] buffers = new PooledByteBuffer[4];
+    private int bufferCount;
+    private int size;
+
+    @Nullable
+    private ByteBuffer current;
+
+    /** Exchange output stream, set once the buffered body exceeds the limit. */
+    @Nullable
+    private OutputStream streaming;
+
+    PooledResponseOutputStream(HttpServerExchange exchange, int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be positive");
+        this.exchange = exchange;
+        this.pool = exchange.getConnection().getByteBufferPool();
+        this.limit = limit;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (streaming != null) {
+            streaming.write(value);
+        } else if (size >= limit) {
+            startStreaming().write(value);
+        } else {
+            currentBuffer().put((byte) value);
+            size++;
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (streaming != null) {
+            streaming.write(bytes, offset, length);
+            return;
+        }
+        if (length > limit - size) {
+            startStreaming().write(bytes, offset, length);
+            return;
+        }
+        int position = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            ByteBuffer buffer = currentBuffer();
+            int chunk = Math.min(remaining, buffer.remaining());
+            buffer.put(bytes, position, chunk);
+            position += chunk;
+            remaining -= chunk;
+        }
+        size += length;
+    }
+
+    /**
+     * Sends the buffered body with an exact {@code Content-Length}. Has no effect if the body was larger than the
+     * limit, in which case it has already been streamed to the exchange.
+     */
+    void commit() throws IOException {
+        if (streaming != null) {
+            return;
+        }
+        exchange.setResponseContentLength(size);
+        if (bufferCount > 0) {
+            // Undertow writes buffers matching the Content-Length directly to the channel in a single gathering write
+            writeBuffers(exchange.getOutputStream());
+        }
+    }
+
+    /** Returns pooled buffers. The exchange output stream is not closed. */
+    @Override
+    public void close() {
+        releaseBuffers();
+    }
+
+    private ByteBuffer currentBuffer() {
+        ByteBuffer buffer = current;
+        if (buffer == null || !buffer.hasRemaining()) {
+            PooledByteBuffer pooled = pool.allocate();
+            if (bufferCount == buffers.length) {
+                buffers = Arrays.copyOf(buffers, bufferCount * 2);
+            }
+            buffers[bufferCount++] = pooled;
+            buffer = pooled.getBuffer();
+            buffer.clear();
+            current = buffer;
+        }
+        return buffer;
+    }
+
+    /** Writes buffered content to the exchange, and returns the stream subsequent writes must be passed to. */
+    private OutputStream startStreaming() throws IOException {
+        OutputStream output = exchange.getOutputStream();
+        streaming = output;
+        if (bufferCount > 0) {
+            writeBuffers(output);
+        }
+        releaseBuffers();
+        return output;
+    }
+
+    private void writeBuffers(OutputStream output) throws IOException {
+        ByteBuffer[] byteBuffers = new ByteBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            byteBuffers[i] = buffers[i].getBuffer().flip();
+        }
+        current = null;
+        if (output instanceof BufferWritableOutputStream) {
+            ((BufferWritableOutputStream) output).write(byteBuffers);
+        } else {
+            WritableByteChannel channel = Channels.newChannel(output);
+            for (ByteBuffer byteBuffer : byteBuffers) {
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            }
+        }
+    }
+
+    private void releaseBuffers() {
+        for (int i = 0; i < bufferCount; i++) {
+            buffers[i].close();
+            buffers[i] = null;
+        }
+        bufferCount = 0;
+        current = null;
+    }
+}
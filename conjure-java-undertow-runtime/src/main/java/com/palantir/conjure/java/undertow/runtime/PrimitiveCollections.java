@@ -0,0 +1,280 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.lib.SafeLong;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable {@link List} and {@link Set} views over primitive arrays, used for query parameter collections of
+ * numeric values. Values are stored unboxed, and are only boxed when they are read. Sets retain the first occurrence
+ * of each value in iteration order, consistent with {@link com.google.common.collect.ImmutableSet}, and compare
+ * values using {@link Object#equals(Object)} semantics.
+ *
+ * <p>Package private internal API.
+ */
+final class PrimitiveCollections {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private PrimitiveCollections() {}
+
+    /** Collects {@code int} values into a list or set, only one of which may be built. */
+    static final class IntBuilder {
+        private int[] values;
+        private int size;
+
+        IntBuilder(int expectedSize) {
+            this.values = new int[expectedSize];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            values[size++] = value;
+        }
+
+        List<Integer> buildList() {
+            return size == 0 ? Collections.emptyList() : new IntList(trim(values, size));
+        }
+
+        Set<Integer> buildSet() {
+            if (size == 0) {
+                return Collections.emptySet();
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = values[i];
+            }
+            KeyIndex index = KeyIndex.distinct(keys, size);
+            int[] distinct = new int[index.size];
+            for (int i = 0; i < index.size; i++) {
+                distinct[i] = (int) keys[i];
+            }
+            return new PrimitiveSet<>(new IntList(distinct), index, Integer.class, Integer::longValue);
+        }
+    }
+
+    /** Collects {@code double} values into a list or set, only one of which may be built. */
+    static final class DoubleBuilder {
+        private double[] values;
+        private int size;
+
+        DoubleBuilder(int expectedSize) {
+            this.values = new double[expectedSize];
+        }
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            values[size++] = value;
+        }
+
+        List<Double> buildList() {
+            return size == 0 ? Collections.emptyList() : new DoubleList(trim(values, size));
+        }
+
+        Set<Double> buildSet() {
+            if (size == 0) {
+                return Collections.emptySet();
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                // Consistent with Double.equals
+                keys[i] = Double.doubleToLongBits(values[i]);
+            }
+            KeyIndex index = KeyIndex.distinct(keys, size);
+            double[] distinct = new double[index.size];
+            for (int i = 0; i < index.size; i++) {
+                distinct[i] = Double.longBitsToDouble(keys[i]);
+            }
+            return new PrimitiveSet<>(new DoubleList(distinct), index, Double.class, Double::doubleToLongBits);
+        }
+    }
+
+    /** Collects {@link SafeLong} values as {@code long} into a list or set, only one of which may be built. */
+    static final class SafeLongBuilder {
+        private long[] values;
+        private int size;
+
+        SafeLongBuilder(int expectedSize) {
+            this.values = new long[expectedSize];
+        }
+
+        void add(SafeLong value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            values[size++] = value.longValue();
+        }
+
+        List<SafeLong> buildList() {
+            return size == 0 ? Collections.emptyList() : new SafeLongList(trim(values, size));
+        }
+
+        Set<SafeLong> buildSet() {
+            if (size == 0) {
+                return Collections.emptySet();
+            }
+            KeyIndex index = KeyIndex.distinct(values, size);
+            return new PrimitiveSet<>(
+                    new SafeLongList(Arrays.copyOf(values, index.size)), index, SafeLong.class, SafeLong::longValue);
+        }
+    }
+
+    private static int grow(int size) {
+        return Math.max(MIN_CAPACITY, size + (size >> 1));
+    }
+
+    private static final class IntList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class DoubleList extends AbstractList<Double> implements RandomAccess {
+        private final double[] values;
+
+        DoubleList(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class SafeLongList extends AbstractList<SafeLong> implements RandomAccess {
+        private final long[] values;
+
+        SafeLongList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public SafeLong get(int index) {
+            return SafeLong.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class PrimitiveSet<T> extends AbstractSet<T> {
+        private final List<T> elements;
+        private final KeyIndex index;
+        private final Class<T> type;
+        private final ToLongFunction<T> key;
+
+        PrimitiveSet(List<T> elements, KeyIndex index, Class<T> type, ToLongFunction<T> key) {
+            this.elements = elements;
+            this.index = index;
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return type.isInstance(value) && index.contains(key.applyAsLong(type.cast(value)));
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return elements.iterator();
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+    }
+
+    /** Open addressing hash table of the positions of distinct 64-bit keys within an array. */
+    private static final class KeyIndex {
+        private final long[] keys;
+        private final int size;
+        // Position of the key plus one, zero for empty slots
+        private final int[] slots;
+
+        private KeyIndex(long[] keys, int size, int[] slots) {
+            this.keys = keys;
+            this.size = size;
+            this.slots = slots;
+        }
+
+        /** Removes duplicates from the first {@code size} keys in place, retaining the first occurrence of each. */
+        static KeyIndex distinct(long[] keys, int size) {
+            // At most half full
+            int[] slots = new int[Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1];
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                long key = keys[i];
+                int slot = find(keys, slots, key);
+                if (slots[slot] == 0) {
+                    keys[distinct] = key;
+                    slots[slot] = ++distinct;
+                }
+            }
+            return new KeyIndex(keys, distinct, slots);
+        }
+
+        boolean contains(long key) {
+            return slots[find(keys, slots, key)] != 0;
+        }
+
+        /** Returns the slot containing the key, or the empty slot where it would be inserted. */
+        private static int find(long[] keys, int[] slots, long key) {
+            int mask = slots.length - 1;
+            int hash = Long.hashCode(key) * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
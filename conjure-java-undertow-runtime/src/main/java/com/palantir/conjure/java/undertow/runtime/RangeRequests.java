@@ -0,0 +1,205 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Support for single byte range requests using the {@code Range} and {@code If-Range} headers, see
+ * <a href="https://tools.ietf.org/html/rfc7233">RFC 7233</a>. Range requests are enabled per-endpoint using the
+ * {@value #TAG} tag, and apply to binary responses which are able to seek, currently
+ * {@link com.palantir.conjure.java.undertow.lib.FileBinaryResponseBody}.
+ *
+ * <p>Requests with multiple ranges, or with a {@code Range} header which cannot be parsed, receive the complete
+ * representation as permitted by the specification. {@code If-Range} is only satisfied by the
+ * {@code Last-Modified} date of the file, entity tags are not produced so never match.
+ *
+ * <p>Package private internal API.
+ */
+final class RangeRequests {
+
+    static final String TAG = "server-range-requests";
+
+    private static final AttachmentKey<Boolean> ENABLED = AttachmentKey.create(Boolean.class);
+    private static final String BYTES_UNIT = "bytes";
+    private static final String BYTES_PREFIX = BYTES_UNIT + '=';
+
+    private RangeRequests() {}
+
+    /** Returns a handler which enables range requests for the endpoint, if it has opted in. */
+    static Optional<HttpHandler> handler(Endpoint endpoint) {
+        if (!isSupported(endpoint)) {
+            return Optional.empty();
+        }
+        HttpHandler next = endpoint.handler();
+        return Optional.of(exchange -> {
+            enable(exchange);
+            next.handleRequest(exchange);
+        });
+    }
+
+    /** Returns true if the endpoint has opted in to range requests. */
+    static boolean isSupported(Endpoint endpoint) {
+        return Methods.GET.equals(endpoint.method()) && endpoint.tags().contains(TAG);
+    }
+
+    static void enable(HttpServerExchange exchange) {
+        exchange.putAttachment(ENABLED, Boolean.TRUE);
+    }
+
+    static boolean isEnabled(HttpServerExchange exchange) {
+        return exchange.getAttachment(ENABLED) != null;
+    }
+
+    /**
+     * Selects the part of a representation of {@code length} bytes to send, setting the response status and range
+     * headers. The complete representation is selected unless the request contains a satisfiable range, and an
+     * empty range is selected with a {@code 416} status when the range cannot be satisfied.
+     */
+    static ByteRange select(HttpServerExchange exchange, long length, long lastModifiedMillis) {
+        HeaderMap responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.put(Headers.ACCEPT_RANGES, BYTES_UNIT);
+        responseHeaders.put(Headers.LAST_MODIFIED, DateUtils.toDateString(new Date(lastModifiedMillis)));
+        HeaderMap requestHeaders = exchange.getRequestHeaders();
+        String range = requestHeaders.getFirst(Headers.RANGE);
+        if (range == null || !ifRangeMatches(requestHeaders.getFirst(Headers.IF_RANGE), lastModifiedMillis)) {
+            return ByteRange.full(length);
+        }
+        ByteRange selected = parse(range, length);
+        if (selected == null) {
+            return ByteRange.full(length);
+        }
+        if (selected == ByteRange.UNSATISFIABLE) {
+            exchange.setStatusCode(StatusCodes.REQUEST_RANGE_NOT_SATISFIABLE);
+            responseHeaders.put(Headers.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+            return selected;
+        }
+        exchange.setStatusCode(StatusCodes.PARTIAL_CONTENT);
+        responseHeaders.put(
+                Headers.CONTENT_RANGE,
+                BYTES_UNIT + ' ' + selected.start() + '-' + (selected.start() + selected.length() - 1) + '/' + length);
+        return selected;
+    }
+
+    private static boolean ifRangeMatches(@Nullable String ifRange, long lastModifiedMillis) {
+        if (ifRange == null) {
+            return true;
+        }
+        Date date = DateUtils.parseDate(ifRange);
+        // HTTP dates have second precision
+        return date != null
+                && TimeUnit.MILLISECONDS.toSeconds(date.getTime())
+                        == TimeUnit.MILLISECONDS.toSeconds(lastModifiedMillis);
+    }
+
+    /**
+     * Parses a single byte range of a representation of {@code length} bytes. Returns null if the value is not a
+     * single valid byte range, and an empty range if the range cannot be satisfied.
+     */
+    @Nullable
+    static ByteRange parse(String value, long length) {
+        String trimmed = value.trim();
+        if (!trimmed.regionMatches(true, 0, BYTES_PREFIX, 0, BYTES_PREFIX.length()) || trimmed.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = trimmed.substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String firstValue = spec.substring(0, dash).trim();
+        String lastValue = spec.substring(dash + 1).trim();
+        long last = parseLong(lastValue);
+        if (firstValue.isEmpty()) {
+            // Suffix range, the final 'last' bytes
+            if (last < 0) {
+                return null;
+            }
+            return last == 0 || length == 0
+                    ? ByteRange.UNSATISFIABLE
+                    : new ByteRange(Math.max(0, length - last), Math.min(last, length));
+        }
+        long first = parseLong(firstValue);
+        if (first < 0 || (!lastValue.isEmpty() && (last < 0 || last < first))) {
+            return null;
+        }
+        if (first >= length) {
+            return ByteRange.UNSATISFIABLE;
+        }
+        long end = last < 0 ? length - 1 : Math.min(last, length - 1);
+        return new ByteRange(first, end - first + 1);
+    }
+
+    /** Returns the non-negative value, or -1 if the value is empty or not a valid number. */
+    private static long parseLong(String value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        long result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character < '0' || character > '9' || result > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            result = result * 10 + (character - '0');
+        }
+        return result;
+    }
+
+    /** Part of a representation, relative to the start of the representation. */
+    static final class ByteRange {
+
+        static final ByteRange UNSATISFIABLE = new ByteRange(0, 0);
+
+        private final long start;
+        private final long length;
+
+        ByteRange(long start, long length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        static ByteRange full(long length) {
+            return new ByteRange(0, length);
+        }
+
+        long start() {
+            return start;
+        }
+
+        long length() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "ByteRange{start=" + start + ", length=" + length + '}';
+        }
+    }
+}
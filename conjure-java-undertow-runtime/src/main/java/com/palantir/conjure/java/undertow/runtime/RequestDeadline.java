@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.api.errors.ErrorType;
+import com.palantir.conjure.java.api.errors.ServiceException;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.logger.SafeLogger;
+import com.palantir.logsafe.logger.SafeLoggerFactory;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HttpString;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Deadline provided by the client using the {@code Request-Timeout-Millis} header, the number of milliseconds the
+ * client will wait for a response. The header is parsed once when the request is received, so that time spent
+ * waiting for the server task pool counts against the deadline. Requests whose deadline has passed by the time the
+ * endpoint would be invoked fail without invoking it, and asynchronous endpoints time out no later than the deadline.
+ * Malformed and non-positive values are ignored.
+ *
+ * <p>Package private internal API.
+ */
+final class RequestDeadline {
+
+    private static final SafeLogger log = SafeLoggerFactory.get(RequestDeadline.class);
+    static final HttpString HEADER = HttpString.tryFromString("Request-Timeout-Millis");
+    private static final AttachmentKey<RequestDeadline> KEY = AttachmentKey.create(RequestDeadline.class);
+    private static final ErrorType DEADLINE_EXCEEDED =
+            ErrorType.create(ErrorType.Code.TIMEOUT, "Conjure:RequestDeadlineExceeded");
+    // Longer timeouts are equivalent to no deadline, bounding them avoids overflow
+    private static final long MAX_TIMEOUT_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+
+    private RequestDeadline(long timeoutMillis, long deadlineNanos) {
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Returns the deadline of the current request, or null if the client did not provide one. */
+    @Nullable
+    static RequestDeadline get(HttpServerExchange exchange) {
+        return exchange.getAttachment(KEY);
+    }
+
+    /** Parses the deadline header, should be applied as early as possible. */
+    static HttpHandler parseHandler(HttpHandler next) {
+        return exchange -> {
+            parse(exchange);
+            next.handleRequest(exchange);
+        };
+    }
+
+    /** Fails requests whose deadline has passed rather than invoking the endpoint. */
+    static HttpHandler enforceHandler(HttpHandler next) {
+        return exchange -> {
+            RequestDeadline deadline = exchange.getAttachment(KEY);
+            if (deadline != null && deadline.remainingNanos() <= 0) {
+                throw new ServiceException(
+                        DEADLINE_EXCEEDED, SafeArg.of("requestTimeoutMillis", deadline.timeoutMillis));
+            }
+            next.handleRequest(exchange);
+        };
+    }
+
+    /** Time remaining before the client gives up on the request, or {@link Duration#ZERO} once it has passed. */
+    Duration remaining() {
+        return Duration.ofNanos(Math.max(0, remainingNanos()));
+    }
+
+    /** Returns the shorter of {@code timeout} and the time remaining before the deadline. */
+    Duration limit(Duration timeout) {
+        Duration remaining = remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    private long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    private static void parse(HttpServerExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst(HEADER);
+        if (value == null) {
+            return;
+        }
+        long timeoutMillis;
+        try {
+            timeoutMillis = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed request timeout header", e);
+            return;
+        }
+        if (timeoutMillis <= 0) {
+            // Not a meaningful deadline, most likely a client bug, so it is treated like a malformed value
+            log.debug(
+                    "Ignoring non-positive request timeout header", SafeArg.of("requestTimeoutMillis", timeoutMillis));
+            return;
+        }
+        // Prefer the time the request was received when the server records it
+        long startNanos = exchange.getRequestStartTime() != -1 ? exchange.getRequestStartTime() : System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(timeoutMillis, MAX_TIMEOUT_MILLIS));
+        exchange.putAttachment(KEY, new RequestDeadline(timeoutMillis, startNanos + timeoutNanos));
+    }
+}
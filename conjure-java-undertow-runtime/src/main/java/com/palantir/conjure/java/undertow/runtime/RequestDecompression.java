@@ -0,0 +1,81 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.runtime.CompressingOutputStream.ContentCoding;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import java.io.InputStream;
+
+/**
+ * Decoding of request bodies sent with a {@code gzip} or {@code deflate} {@code Content-Encoding}. Requests using
+ * any other content coding, or more than one, are rejected with a {@code 415} response.
+ *
+ * <p>Package private internal API.
+ */
+final class RequestDecompression {
+
+    /** Default limit on the decompressed size of a request body. */
+    static final long DEFAULT_MAX_DECOMPRESSED_BYTES = 64L * 1024 * 1024;
+
+    private static final String IDENTITY = "identity";
+
+    private final long maxDecompressedBytes;
+    private final InflaterPool gzipInflaters;
+    private final InflaterPool deflateInflaters;
+
+    RequestDecompression(long maxDecompressedBytes) {
+        Preconditions.checkArgument(maxDecompressedBytes > 0, "maxDecompressedRequestBytes must be positive");
+        this.maxDecompressedBytes = maxDecompressedBytes;
+        // Decompression is CPU bound, so there is little benefit to retaining more inflaters than processors
+        int capacity = Runtime.getRuntime().availableProcessors() * 2;
+        this.gzipInflaters = new InflaterPool(true, capacity);
+        this.deflateInflaters = new InflaterPool(false, capacity);
+    }
+
+    /** Returns true if the request body uses a content coding other than {@code identity}. */
+    static boolean isEncoded(HttpServerExchange exchange) {
+        HeaderValues contentEncoding = exchange.getRequestHeaders().get(Headers.CONTENT_ENCODING);
+        return contentEncoding != null
+                && !contentEncoding.isEmpty()
+                && !(contentEncoding.size() == 1 && IDENTITY.equalsIgnoreCase(contentEncoding.getFirst().trim()));
+    }
+
+    /**
+     * Returns a stream of the decoded request body. The {@code body} is returned directly when the request is not
+     * encoded, otherwise the returned stream must be closed to release its resources.
+     */
+    InputStream decode(HttpServerExchange exchange, InputStream body) {
+        if (!isEncoded(exchange)) {
+            return body;
+        }
+        HeaderValues contentEncoding = exchange.getRequestHeaders().get(Headers.CONTENT_ENCODING);
+        String value = contentEncoding.size() == 1 ? contentEncoding.getFirst().trim() : null;
+        if (ContentCoding.GZIP.headerValue().equalsIgnoreCase(value)) {
+            return new DecompressingInputStream(body, ContentCoding.GZIP, gzipInflaters, maxDecompressedBytes);
+        }
+        if (ContentCoding.DEFLATE.headerValue().equalsIgnoreCase(value)) {
+            return new DecompressingInputStream(body, ContentCoding.DEFLATE, deflateInflaters, maxDecompressedBytes);
+        }
+        throw FrameworkException.unsupportedMediaType(
+                "Unsupported Content-Encoding", SafeArg.of("Content-Encoding", ImmutableList.copyOf(contentEncoding)));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.runtime.CompressingOutputStream.ContentCoding;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.exceptions.SafeIllegalArgumentException;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compression of serialized response bodies based on the request {@code Accept-Encoding} header. Compression is
+ * enabled per-endpoint by attaching the endpoint configuration to the exchange, allowing
+ * {@link ConjureBodySerDe} serializers to apply it without changes to generated code.
+ *
+ * <p>Endpoints may opt out using the {@value #DISABLED_TAG} tag, or override the size threshold using a tag of the
+ * form {@code server-response-compression{threshold=<bytes>}}.
+ *
+ * <p>Package private internal API.
+ */
+final class ResponseCompression {
+
+    static final String DISABLED_TAG = "server-no-response-compression";
+    private static final Pattern THRESHOLD_TAG = Pattern.compile("server-response-compression\\{threshold=(\\d+)}");
+
+    private static final AttachmentKey<EndpointCompression> ATTACHMENT_KEY =
+            AttachmentKey.create(EndpointCompression.class);
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+
+    private final int threshold;
+    private final DeflaterPool gzipDeflaters;
+    private final DeflaterPool deflateDeflaters;
+
+    ResponseCompression(int threshold) {
+        Preconditions.checkArgument(threshold >= 0, "Compression threshold must not be negative");
+        this.threshold = threshold;
+        // Compression is CPU bound, so there is little benefit to retaining more deflaters than processors
+        int capacity = Runtime.getRuntime().availableProcessors() * 2;
+        this.gzipDeflaters = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, capacity);
+        this.deflateDeflaters = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, false, capacity);
+    }
+
+    /** Returns a handler which enables compression for the endpoint, unless it has opted out. */
+    Optional<HttpHandler> handler(Endpoint endpoint) {
+        EndpointCompression compression = forEndpoint(endpoint);
+        if (compression == null) {
+            return Optional.empty();
+        }
+        HttpHandler next = endpoint.handler();
+        return Optional.of(exchange -> {
+            enable(exchange, compression);
+            next.handleRequest(exchange);
+        });
+    }
+
+    /** Returns the compression configuration for the endpoint, or null if it has opted out. */
+    @Nullable
+    EndpointCompression forEndpoint(Endpoint endpoint) {
+        if (endpoint.tags().contains(DISABLED_TAG)) {
+            return null;
+        }
+        return new EndpointCompression(this, endpointThreshold(endpoint));
+    }
+
+    /** Enables compression of responses to the exchange using the endpoint configuration. */
+    static void enable(HttpServerExchange exchange, EndpointCompression compression) {
+        exchange.putAttachment(ATTACHMENT_KEY, compression);
+    }
+
+    private int endpointThreshold(Endpoint endpoint) {
+        for (String tag : endpoint.tags()) {
+            Matcher matcher = THRESHOLD_TAG.matcher(tag);
+            if (matcher.matches()) {
+                try {
+                    return Integer.parseInt(matcher.group(1));
+                } catch (NumberFormatException e) {
+                    throw new SafeIllegalArgumentException(
+                            "Invalid response compression threshold",
+                            e,
+                            SafeArg.of("tag", tag),
+                            SafeArg.of("service", endpoint.serviceName()),
+                            SafeArg.of("endpoint", endpoint.name()));
+                }
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns a stream which compresses data written to {@code output} using the content coding preferred by the
+     * client, or null if compression is not enabled for the endpoint or not accepted by the client.
+     */
+    @Nullable
+    static CompressingOutputStream compress(HttpServerExchange exchange, OutputStream output) {
+        EndpointCompression compression = exchange.getAttachment(ATTACHMENT_KEY);
+        if (compression == null) {
+            return null;
+        }
+        // The response depends on Accept-Encoding whether or not it's compressed
+        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        HeaderValues acceptEncoding = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        int gzip = AcceptHeader.quality(AcceptHeader.match(acceptEncoding, GZIP));
+        int deflate = AcceptHeader.quality(AcceptHeader.match(acceptEncoding, DEFLATE));
+        if (gzip == 0 && deflate == 0) {
+            return null;
+        }
+        ResponseCompression runtime = compression.runtime;
+        return gzip >= deflate
+                ? new CompressingOutputStream(
+                        exchange, output, ContentCoding.GZIP, runtime.gzipDeflaters, compression.threshold)
+                : new CompressingOutputStream(
+                        exchange, output, ContentCoding.DEFLATE, runtime.deflateDeflaters, compression.threshold);
+    }
+
+    static final class EndpointCompression {
+
+        private final ResponseCompression runtime;
+        private final int threshold;
+
+        EndpointCompression(ResponseCompression runtime, int threshold) {
+            this.runtime = runtime;
+            this.threshold = threshold;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.logsafe.Preconditions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fixed set of response headers computed once, applied to each response in a single pass. Endpoints receive the
+ * headers of {@link WebSecurityHandler}, {@link NoCachingResponseHandler} for {@code GET} requests, and
+ * {@link DeprecationReportingResponseHandler} when deprecated.
+ *
+ * <p>Package private internal API.
+ */
+final class StaticResponseHeaders {
+
+    private final HttpString[] names;
+    private final String[] values;
+
+    private StaticResponseHeaders(HttpString[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /** Returns the static headers which apply to responses from the endpoint. */
+    static StaticResponseHeaders forEndpoint(Endpoint endpoint) {
+        Builder builder = builder();
+        if (Methods.GET.equals(endpoint.method())) {
+            builder.putAll(NoCachingResponseHandler.HEADERS);
+        }
+        builder.putAll(WebSecurityHandler.HEADERS);
+        if (endpoint.deprecated().isPresent()) {
+            builder.putAll(DeprecationReportingResponseHandler.HEADERS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a handler which applies the endpoint headers, including the {@link WebSecurityHandler} headers which
+     * depend on the request.
+     */
+    static Optional<HttpHandler> handler(Endpoint endpoint) {
+        StaticResponseHeaders headers = forEndpoint(endpoint);
+        HttpHandler next = endpoint.handler();
+        return Optional.of(exchange -> {
+            headers.apply(exchange);
+            WebSecurityHandler.addUserAgentHeaders(exchange);
+            next.handleRequest(exchange);
+        });
+    }
+
+    void apply(HttpServerExchange exchange) {
+        HeaderMap headers = exchange.getResponseHeaders();
+        for (int i = 0; i < names.length; i++) {
+            headers.put(names[i], values[i]);
+        }
+    }
+
+    static final class Builder {
+
+        private final Map<HttpString, String> headers = new LinkedHashMap<>();
+
+        private Builder() {}
+
+        @CanIgnoreReturnValue
+        Builder put(HttpString name, String value) {
+            headers.put(
+                    Preconditions.checkNotNull(name, "Header name is required"),
+                    Preconditions.checkNotNull(value, "Header value is required"));
+            return this;
+        }
+
+        @CanIgnoreReturnValue
+        Builder putAll(StaticResponseHeaders values) {
+            for (int i = 0; i < values.names.length; i++) {
+                put(values.names[i], values.values[i]);
+            }
+            return this;
+        }
+
+        StaticResponseHeaders build() {
+            return new StaticResponseHeaders(
+                    headers.keySet().toArray(new HttpString[0]), headers.values().toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.logger.SafeLogger;
+import com.palantir.logsafe.logger.SafeLoggerFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.annotation.Nullable;
+import org.xnio.XnioIoThread;
+
+/**
+ * Hashed timer wheel which executes timeouts on a single {@link XnioIoThread}. Rather than scheduling a task with the
+ * IO thread for each timeout, the wheel schedules a single tick while any timeouts are live and expires each bucket
+ * of timeouts in a batch. Timeouts may be scheduled and cancelled from any thread in constant time, the wheel itself
+ * is only modified on the IO thread. Timeouts expire up to one tick late.
+ *
+ * <p>Package private internal API.
+ */
+final class TimeoutWheel {
+
+    private static final SafeLogger log = SafeLoggerFactory.get(TimeoutWheel.class);
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final Scheduler scheduler;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable tick = this::tick;
+
+    // Confined to the IO thread
+    private long currentTick;
+    // True while the wheel contains no timeouts, until the next tick
+    private boolean idle = true;
+
+    TimeoutWheel(XnioIoThread ioThread) {
+        this(
+                (task, delayNanos) -> ioThread.executeAfter(task, delayNanos, TimeUnit.NANOSECONDS),
+                DEFAULT_TICK_NANOS,
+                DEFAULT_WHEEL_SIZE);
+    }
+
+    TimeoutWheel(Scheduler scheduler, long tickNanos, int wheelSize) {
+        Preconditions.checkArgument(
+                Integer.bitCount(wheelSize) == 1,
+                "wheelSize must be a power of two",
+                SafeArg.of("wheelSize", wheelSize));
+        this.scheduler = scheduler;
+        this.tickNanos = tickNanos;
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+    }
+
+    /** Executes {@code task} on the IO thread after {@code delayNanos} unless the timeout is cancelled first. */
+    Timeout schedule(Runnable task, long delayNanos) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + delayNanos);
+        live.incrementAndGet();
+        pending.add(timeout);
+        if (scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(tick, tickNanos);
+        }
+        return timeout;
+    }
+
+    /** Number of timeouts which have been scheduled and have neither expired nor been cancelled. */
+    int liveTimeouts() {
+        return live.get();
+    }
+
+    private void tick() {
+        try {
+            long elapsedTicks = (System.nanoTime() - startNanos) / tickNanos;
+            if (idle) {
+                // The wheel has been empty since ticks stopped, so there is nothing to expire in the elapsed ticks
+                idle = false;
+                currentTick = Math.max(currentTick, elapsedTicks);
+            }
+            removeCancelled();
+            transferPending();
+            if (elapsedTicks - currentTick >= wheel.length) {
+                // After a delay longer than a rotation each bucket is visited once, rather than once per elapsed tick
+                for (Bucket bucket : wheel) {
+                    bucket.expireThrough(elapsedTicks, elapsedTicks + 1, wheel.length);
+                }
+                currentTick = elapsedTicks + 1;
+            }
+            // Catch up if the tick was delayed, expiring each bucket in a batch
+            while (currentTick <= elapsedTicks) {
+                wheel[(int) (currentTick & mask)].expire();
+                currentTick++;
+            }
+        } finally {
+            scheduleNextTick();
+        }
+    }
+
+    private void scheduleNextTick() {
+        if (hasWork()) {
+            scheduler.schedule(tick, nextTickDelayNanos());
+            return;
+        }
+        // No timeouts are live and all cancelled timeouts have been unlinked, so the wheel is empty
+        idle = true;
+        scheduled.set(false);
+        // A timeout may have been scheduled after the check above, before the flag was cleared
+        if (hasWork() && scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(tick, nextTickDelayNanos());
+        }
+    }
+
+    /** Cancelled timeouts must be unlinked so that their tasks are not retained by the wheel. */
+    private boolean hasWork() {
+        return live.get() > 0 || !cancelled.isEmpty();
+    }
+
+    private long nextTickDelayNanos() {
+        return Math.max(0, startNanos + currentTick * tickNanos - System.nanoTime());
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state != Timeout.ACTIVE) {
+                continue;
+            }
+            long deadlineTick =
+                    Math.max(currentTick, divideRoundingUp(timeout.deadlineNanos - startNanos, tickNanos));
+            timeout.deadlineTick = deadlineTick;
+            timeout.remainingRounds = (deadlineTick - currentTick) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private static long divideRoundingUp(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayNanos);
+    }
+
+    static final class Timeout {
+        private static final int ACTIVE = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimeoutWheel owner;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile int state = ACTIVE;
+
+        // Confined to the IO thread
+        private long deadlineTick;
+        private long remainingRounds;
+
+        @Nullable
+        private Bucket bucket;
+
+        @Nullable
+        private Timeout prev;
+
+        @Nullable
+        private Timeout next;
+
+        private Timeout(TimeoutWheel owner, Runnable task, long deadlineNanos) {
+            this.owner = owner;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** Returns true if the timeout will not expire as a result of this call. */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, ACTIVE, CANCELLED)) {
+                return false;
+            }
+            // The timeout is unlinked from its bucket by the next tick. Enqueued before the live count is
+            // decremented, so that a tick which observes no live timeouts also observes this cancellation.
+            owner.cancelled.add(this);
+            owner.live.decrementAndGet();
+            return true;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, ACTIVE, EXPIRED)) {
+                return;
+            }
+            owner.live.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                log.error("Timeout task threw an exception", e);
+            }
+        }
+    }
+
+    /** Doubly linked list of timeouts which supports removal in constant time. */
+    private static final class Bucket {
+
+        @Nullable
+        private Timeout head;
+
+        @Nullable
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state != Timeout.ACTIVE) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        /**
+         * Expires timeouts due by {@code lastTick}, and recomputes the rounds remaining for later timeouts once the
+         * wheel has advanced to {@code nextTick}.
+         */
+        void expireThrough(long lastTick, long nextTick, int rotation) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state != Timeout.ACTIVE) {
+                    remove(timeout);
+                } else if (timeout.deadlineTick <= lastTick) {
+                    remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds = (timeout.deadlineTick - nextTick) / rotation;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
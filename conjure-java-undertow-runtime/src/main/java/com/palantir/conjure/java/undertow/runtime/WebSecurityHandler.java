@@ -18,7 +18,6 @@ package com.palantir.conjure.java.undertow.runtime;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.util.HeaderMap;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 
@@ -53,6 +52,14 @@ final class WebSecurityHandler implements HttpHandler {
     private static final String USER_AGENT_IE_10 = "MSIE 10";
     private static final String USER_AGENT_IE_11 = "rv:11.0";
 
+    static final StaticResponseHeaders HEADERS = StaticResponseHeaders.builder()
+            .put(Headers.CONTENT_SECURITY_POLICY, CONTENT_SECURITY_POLICY)
+            .put(Headers.REFERRER_POLICY, REFERRER_POLICY)
+            .put(Headers.X_CONTENT_TYPE_OPTIONS, CONTENT_TYPE_OPTIONS)
+            .put(Headers.X_FRAME_OPTIONS, FRAME_OPTIONS)
+            .put(Headers.X_XSS_PROTECTION, XSS_PROTECTION)
+            .build();
+
     private final HttpHandler next;
 
     WebSecurityHandler(HttpHandler next) {
@@ -61,19 +68,19 @@ final class WebSecurityHandler implements HttpHandler {
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        HeaderMap headers = exchange.getResponseHeaders();
-        headers.put(Headers.CONTENT_SECURITY_POLICY, CONTENT_SECURITY_POLICY);
-        headers.put(Headers.REFERRER_POLICY, REFERRER_POLICY);
-        headers.put(Headers.X_CONTENT_TYPE_OPTIONS, CONTENT_TYPE_OPTIONS);
-        headers.put(Headers.X_FRAME_OPTIONS, FRAME_OPTIONS);
-        headers.put(Headers.X_XSS_PROTECTION, XSS_PROTECTION);
+        HEADERS.apply(exchange);
+        addUserAgentHeaders(exchange);
+        next.handleRequest(exchange);
+    }
+
+    /** Adds the headers which depend on the client user agent. */
+    static void addUserAgentHeaders(HttpServerExchange exchange) {
         String userAgent = exchange.getRequestHeaders().getFirst(Headers.USER_AGENT);
         if (userAgent != null) {
             // send the CSP header so that IE10 and IE11 recognise it
             if (userAgent.contains(USER_AGENT_IE_10) || userAgent.contains(USER_AGENT_IE_11)) {
-                headers.put(HEADER_IE_X_CONTENT_SECURITY_POLICY, CONTENT_SECURITY_POLICY);
+                exchange.getResponseHeaders().put(HEADER_IE_X_CONTENT_SECURITY_POLICY, CONTENT_SECURITY_POLICY);
             }
         }
-        next.handleRequest(exchange);
     }
 }
@@ -38,7 +38,12 @@ public final class HttpServerExchanges {
     private HttpServerExchanges() {}
 
     public static HttpServerExchange createStub() {
-        return createExchange(new HttpServerConnection(createStreamConnection(), null, null, OptionMap.EMPTY, 0, null));
+        return createStub(OptionMap.EMPTY);
+    }
+
+    /** Creates a stub exchange on a connection configured with the given {@link io.undertow.UndertowOptions}. */
+    public static HttpServerExchange createStub(OptionMap undertowOptions) {
+        return createExchange(new HttpServerConnection(createStreamConnection(), null, null, undertowOptions, 0, null));
     }
 
     private static StreamConnection createStreamConnection() {
@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import org.junit.jupiter.api.Test;
+
+public class AcceptHeaderTest {
+
+    private static final String JSON = "application/json";
+
+    @Test
+    public void testNoMatch() {
+        assertThat(AcceptHeader.match(accept("application/cbor, text/*"), JSON)).isEqualTo(AcceptHeader.NO_MATCH);
+        assertThat(AcceptHeader.quality(AcceptHeader.NO_MATCH)).isZero();
+        assertThat(AcceptHeader.isExact(AcceptHeader.NO_MATCH)).isFalse();
+    }
+
+    @Test
+    public void testExactMatch() {
+        int match = AcceptHeader.match(accept("application/cbor,  Application/JSON ; charset=utf-8"), JSON);
+        assertThat(AcceptHeader.isExact(match)).isTrue();
+        assertThat(AcceptHeader.quality(match)).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(AcceptHeader.position(match)).isOne();
+    }
+
+    @Test
+    public void testDoesNotMatchPrefix() {
+        assertThat(AcceptHeader.match(accept("application/jsonl"), JSON)).isEqualTo(AcceptHeader.NO_MATCH);
+        assertThat(AcceptHeader.match(accept("application/js"), JSON)).isEqualTo(AcceptHeader.NO_MATCH);
+    }
+
+    @Test
+    public void testWildcards() {
+        int any = AcceptHeader.match(accept("*/*;q=0.2"), JSON);
+        assertThat(AcceptHeader.isExact(any)).isFalse();
+        assertThat(AcceptHeader.quality(any)).isEqualTo(200);
+
+        int subtype = AcceptHeader.match(accept("text/*, application/*;q=0.3"), JSON);
+        assertThat(AcceptHeader.isExact(subtype)).isFalse();
+        assertThat(AcceptHeader.quality(subtype)).isEqualTo(300);
+    }
+
+    @Test
+    public void testMostSpecificRangeApplies() {
+        assertThat(AcceptHeader.quality(AcceptHeader.match(accept("*/*, application/json;q=0"), JSON)))
+                .isZero();
+        assertThat(AcceptHeader.quality(AcceptHeader.match(accept("application/json;q=0.5, application/*"), JSON)))
+                .isEqualTo(500);
+        assertThat(AcceptHeader.quality(AcceptHeader.match(accept("*/*;q=0.1, application/*;q=0.4"), JSON)))
+                .isEqualTo(400);
+    }
+
+    @Test
+    public void testMultipleHeaderValues() {
+        int match = AcceptHeader.match(accept("application/cbor, text/plain", "application/json;q=0.7"), JSON);
+        assertThat(AcceptHeader.quality(match)).isEqualTo(700);
+        assertThat(AcceptHeader.position(match)).isEqualTo(2);
+    }
+
+    @Test
+    public void testQuality() {
+        assertThat(quality("q=1")).isEqualTo(1000);
+        assertThat(quality("q=1.0")).isEqualTo(1000);
+        assertThat(quality("q=1.000")).isEqualTo(1000);
+        assertThat(quality("q=0")).isZero();
+        assertThat(quality("q=0.5")).isEqualTo(500);
+        assertThat(quality("q=0.25")).isEqualTo(250);
+        assertThat(quality("q=0.125")).isEqualTo(125);
+        assertThat(quality("Q=0.8")).isEqualTo(800);
+        assertThat(quality("level=1;q=0.3")).isEqualTo(300);
+        assertThat(quality("q=0.3;level=1")).isEqualTo(300);
+    }
+
+    @Test
+    public void testMalformedQualityIsIgnored() {
+        assertThat(quality("q=")).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(quality("q=2")).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(quality("q=0.1234")).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(quality("q=0.x")).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(quality("q=1.5")).isEqualTo(AcceptHeader.MAX_QUALITY);
+        assertThat(quality("quality=0.1")).isEqualTo(AcceptHeader.MAX_QUALITY);
+    }
+
+    private static int quality(String parameters) {
+        return AcceptHeader.quality(AcceptHeader.match(accept(JSON + ";" + parameters), JSON));
+    }
+
+    private static HeaderValues accept(String... values) {
+        HeaderMap headers = new HeaderMap();
+        for (String value : values) {
+            headers.add(Headers.ACCEPT, value);
+        }
+        return headers.get(Headers.ACCEPT);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.undertow.Undertow;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .addWrapperBeforeBlocking(AdaptiveConcurrencyLimiter.builder()
+                                .initialLimit(1)
+                                .maxLimit(1)
+                                .build())
+                        .services(EndpointService.of(
+                                endpoint("/wait", _exchange -> {
+                                    started.countDown();
+                                    release.await();
+                                }),
+                                endpoint("/other", _exchange -> {})))
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        release.countDown();
+        server.stop();
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void testThrottlesOverLimit() throws Exception {
+        Future<Integer> first = clients.submit(() -> {
+            try (Response response = execute("/wait")) {
+                return response.code();
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        try (Response response = execute("/wait")) {
+            assertThat(response.code()).isEqualTo(429);
+            assertThat(response.header("Retry-After")).isEqualTo("1");
+        }
+        // Each endpoint has its own limit
+        try (Response response = execute("/other")) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsStable() {
+        GradientLimit limit = new GradientLimit(10, 1, 100);
+        for (int i = 0; i < 20; i++) {
+            saturate(limit, FAST, false);
+        }
+        assertThat(limit.limit()).isGreaterThan(10);
+    }
+
+    @Test
+    public void testLimitShrinksAsLatencyIncreases() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            saturate(limit, FAST, false);
+        }
+        int stable = limit.limit();
+        for (int i = 0; i < 10; i++) {
+            saturate(limit, SLOW, false);
+        }
+        assertThat(limit.limit()).isLessThan(stable);
+    }
+
+    @Test
+    public void testLimitBacksOffWhenOverloaded() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        saturate(limit, FAST, true);
+        assertThat(limit.limit()).isLessThan(50);
+        for (int i = 0; i < 100; i++) {
+            saturate(limit, FAST, true);
+        }
+        assertThat(limit.limit()).isEqualTo(1);
+        assertThat(limit.retryAfter()).hasSeconds(1);
+    }
+
+    /** Acquires the entire limit, then releases each request with the given latency. */
+    private static void saturate(GradientLimit limit, long rttNanos, boolean dropped) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, dropped);
+        }
+    }
+}
@@ -28,6 +28,8 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.CookieImpl;
 import io.undertow.util.Headers;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 public final class AuthTest {
 
@@ -57,6 +59,15 @@ public final class AuthTest {
                 .hasType(ErrorType.create(ErrorType.Code.UNAUTHORIZED, "Conjure:MalformedCredentials"));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"Bearer", "Bearer ", "bearer token", "Basic dG9rZW4=", "Bearer to ken", "Bearer tokén"})
+    public void testAuthHeaderMalformedValue(String value) {
+        HttpServerExchange exchange = HttpServerExchanges.createStub();
+        exchange.getRequestHeaders().add(Headers.AUTHORIZATION, value);
+        assertThatServiceExceptionThrownBy(() -> CONTEXT.auth().header(exchange))
+                .hasType(ErrorType.create(ErrorType.Code.UNAUTHORIZED, "Conjure:MalformedCredentials"));
+    }
+
     @Test
     public void testAuthHeaderMultipleValues() {
         HttpServerExchange exchange = HttpServerExchanges.createStub();
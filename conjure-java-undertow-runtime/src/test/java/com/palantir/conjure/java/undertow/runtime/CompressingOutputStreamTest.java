@@ -0,0 +1,115 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.io.ByteStreams;
+import com.palantir.conjure.java.undertow.runtime.CompressingOutputStream.ContentCoding;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+public final class CompressingOutputStreamTest {
+
+    private static final int THRESHOLD = 1000;
+
+    private final DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 1);
+    private final HttpServerExchange exchange = new HttpServerExchange(null);
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    public void testBelowThresholdIsNotCompressed() throws IOException {
+        byte[] body = body(THRESHOLD);
+        try (CompressingOutputStream stream = compressingStream()) {
+            stream.write(body, 0, 10);
+            for (int i = 10; i < body.length; i++) {
+                stream.write(body[i]);
+            }
+            stream.finish();
+        }
+        assertThat(exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)).isFalse();
+        assertThat(output.toByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    public void testSingleByteWritesAreCompressed() throws IOException {
+        byte[] body = body(THRESHOLD * 20);
+        try (CompressingOutputStream stream = compressingStream()) {
+            for (byte value : body) {
+                stream.write(value);
+            }
+            stream.finish();
+        }
+        assertThat(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(decode()).isEqualTo(body);
+    }
+
+    @Test
+    public void testMixedWritesAreCompressed() throws IOException {
+        byte[] body = body(THRESHOLD * 20);
+        try (CompressingOutputStream stream = compressingStream()) {
+            int offset = 0;
+            while (offset < body.length) {
+                stream.write(body[offset++]);
+                int length = Math.min(body.length - offset, 300);
+                stream.write(body, offset, length);
+                offset += length;
+            }
+            stream.finish();
+        }
+        assertThat(decode()).isEqualTo(body);
+    }
+
+    @Test
+    public void testBuffersAreReused() throws IOException {
+        try (CompressingOutputStream stream = compressingStream()) {
+            stream.write(body(THRESHOLD * 2));
+            stream.finish();
+        }
+        byte[] buffer = pool.acquireBuffer();
+        pool.releaseBuffer(buffer);
+        try (CompressingOutputStream stream = compressingStream()) {
+            stream.write(body(THRESHOLD * 2));
+            stream.finish();
+        }
+        assertThat(pool.acquireBuffer()).isSameAs(buffer);
+    }
+
+    private CompressingOutputStream compressingStream() {
+        return new CompressingOutputStream(exchange, output, ContentCoding.GZIP, pool, THRESHOLD);
+    }
+
+    private byte[] decode() throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            return ByteStreams.toByteArray(input);
+        }
+    }
+
+    private static byte[] body(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        return body;
+    }
+}
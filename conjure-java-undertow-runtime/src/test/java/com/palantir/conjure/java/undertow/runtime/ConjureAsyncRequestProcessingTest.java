@@ -0,0 +1,189 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.Undertow;
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class ConjureAsyncRequestProcessingTest {
+
+    // A single thread runs every endpoint handler and registration task
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("blocking-executor-%d").build());
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final ConjureUndertowRuntime runtime =
+            ConjureUndertowRuntime.builder().blockingExecutor(executor).build();
+    private final AtomicReference<Thread> handlerThread = new AtomicReference<>();
+    private final AtomicReference<Thread> writerThread = new AtomicReference<>();
+    private final SettableFuture<String> parked = SettableFuture.create();
+    private final CountDownLatch registered = new CountDownLatch(1);
+    private final AtomicBoolean writtenInline = new AtomicBoolean();
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(runtime)
+                        .services(EndpointService.of(
+                                endpoint("/before", exchange -> {
+                                    SettableFuture<String> future = SettableFuture.create();
+                                    register(future, exchange);
+                                    future.set("before");
+                                }),
+                                endpoint(
+                                        "/during",
+                                        exchange -> register(new CompletesOnRegistration(exchange), exchange)),
+                                endpoint(
+                                        "/parked",
+                                        exchange -> register(new SignalsRegistration(parked, exchange), exchange)),
+                                endpoint("/complete", exchange -> {
+                                    parked.set("after");
+                                    writtenInline.set(writerThread.get() == Thread.currentThread());
+                                })))
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+        executor.shutdownNow();
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void testCompletionBeforeRegistrationIsWrittenOnRegistrationThread() throws IOException {
+        try (Response response = execute("/before")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("before");
+        }
+        assertThat(writerThread.get()).isSameAs(handlerThread.get());
+    }
+
+    @Test
+    public void testCompletionDuringRegistrationIsWrittenOnRegistrationThread() throws IOException {
+        try (Response response = execute("/during")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("during");
+        }
+        assertThat(writerThread.get()).isSameAs(handlerThread.get());
+    }
+
+    @Test
+    public void testCompletionAfterRegistrationOnRegistrationThreadIsDispatched() throws Exception {
+        Future<String> parkedResponse = clients.submit(() -> body("/parked"));
+        assertThat(registered.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread registrationThread = handlerThread.get();
+        // Runs on the thread which registered the parked future
+        try (Response response = execute("/complete")) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        assertThat(parkedResponse.get(10, TimeUnit.SECONDS)).isEqualTo("after");
+        assertThat(writtenInline).isFalse();
+        assertThat(writerThread.get()).isNotSameAs(registrationThread);
+    }
+
+    @Test
+    public void testCompletionFromOtherThreadIsDispatched() throws Exception {
+        Future<String> parkedResponse = clients.submit(() -> body("/parked"));
+        assertThat(registered.await(10, TimeUnit.SECONDS)).isTrue();
+        AtomicReference<Thread> completer = new AtomicReference<>();
+        clients.submit(() -> {
+                    completer.set(Thread.currentThread());
+                    parked.set("other");
+                })
+                .get(10, TimeUnit.SECONDS);
+        assertThat(parkedResponse.get(10, TimeUnit.SECONDS)).isEqualTo("other");
+        assertThat(writerThread.get()).isNotSameAs(completer.get()).isNotSameAs(handlerThread.get());
+    }
+
+    private void register(ListenableFuture<String> future, HttpServerExchange exchange) throws IOException {
+        handlerThread.set(Thread.currentThread());
+        runtime.async().register(
+                future,
+                (value, serverExchange) -> {
+                    writerThread.set(Thread.currentThread());
+                    serverExchange.getResponseSender().send(value);
+                },
+                exchange);
+    }
+
+    private static String body(String path) throws IOException {
+        try (Response response = execute(path)) {
+            return response.body().string();
+        }
+    }
+
+    /** Completes when a listener is added by the registration task, which runs after the handler returns. */
+    private static final class CompletesOnRegistration extends AbstractFuture<String> {
+        private final HttpServerExchange exchange;
+
+        CompletesOnRegistration(HttpServerExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void addListener(Runnable listener, Executor listenerExecutor) {
+            super.addListener(listener, listenerExecutor);
+            if (!exchange.isInCall()) {
+                set("during");
+            }
+        }
+    }
+
+    /** Delegates to a future, and signals once the registration task has added its callback. */
+    private final class SignalsRegistration extends AbstractFuture<String> {
+        private final HttpServerExchange exchange;
+
+        SignalsRegistration(ListenableFuture<String> delegate, HttpServerExchange exchange) {
+            this.exchange = exchange;
+            setFuture(delegate);
+        }
+
+        @Override
+        public void addListener(Runnable listener, Executor listenerExecutor) {
+            super.addListener(listener, listenerExecutor);
+            if (!exchange.isInCall()) {
+                registered.countDown();
+            }
+        }
+    }
+}
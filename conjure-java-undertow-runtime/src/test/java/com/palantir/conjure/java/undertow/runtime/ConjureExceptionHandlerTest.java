@@ -29,6 +29,7 @@ import com.palantir.conjure.java.api.errors.ServiceException;
 import com.palantir.conjure.java.undertow.HttpServerExchanges;
 import com.palantir.conjure.java.undertow.lib.TypeMarker;
 import com.palantir.logsafe.SafeArg;
+import com.palantir.logsafe.UnsafeArg;
 import io.undertow.Undertow;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.BlockingHandler;
@@ -81,6 +82,47 @@ public final class ConjureExceptionHandlerTest {
         assertThat(response.code()).isEqualTo(ErrorType.CONFLICT.httpErrorCode());
     }
 
+    @Test
+    public void serializesServiceExceptionsIdenticallyToJackson() throws IOException {
+        ServiceException serviceException = new ServiceException(
+                ErrorType.create(Code.INVALID_ARGUMENT, "Test:Escaping"),
+                SafeArg.of("quote", "\"quoted\" \\ back\\slash"),
+                SafeArg.of("control", "line\nbreak\ttab\u0001"),
+                UnsafeArg.of("unicode", "caf\u00e9 \u20ac \uD83D\uDE00"),
+                SafeArg.of("null", null));
+        exception = serviceException;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Encodings.json()
+                .serializer(new TypeMarker<SerializableError>() {})
+                .serialize(SerializableError.forException(serviceException), stream);
+
+        Response response = execute();
+        byte[] body = response.body().bytes();
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo(stream.toString(StandardCharsets.UTF_8));
+        assertThat(response.header("Content-Type")).isEqualTo("application/json");
+        assertThat(response.header("Content-Length")).isEqualTo(Integer.toString(body.length));
+    }
+
+    @Test
+    public void serializesRepeatedParametersIdenticallyToJackson() throws IOException {
+        ServiceException serviceException = new ServiceException(
+                ErrorType.CONFLICT,
+                SafeArg.of("foo", "first"),
+                SafeArg.of("bar", "bar"),
+                UnsafeArg.of("foo", "second"),
+                SafeArg.of("foo", "last"));
+        exception = serviceException;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Encodings.json()
+                .serializer(new TypeMarker<SerializableError>() {})
+                .serialize(SerializableError.forException(serviceException), stream);
+
+        Response response = execute();
+        assertThat(response.body().string())
+                .isEqualTo(stream.toString(StandardCharsets.UTF_8))
+                .contains("\"parameters\":{\"foo\":\"last\",\"bar\":\"bar\"}}");
+    }
+
     @Test
     public void handlesRemoteException() throws IOException {
         SerializableError remoteError =
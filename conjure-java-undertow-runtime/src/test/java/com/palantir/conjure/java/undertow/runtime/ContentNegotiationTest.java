@@ -0,0 +1,143 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.runtime.ConjureBodySerDeTest.StubEncoding;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import org.junit.jupiter.api.Test;
+
+public class ContentNegotiationTest {
+
+    private static final int JSON = 0;
+    private static final int SMILE = 1;
+    private static final int CBOR = 2;
+
+    private final ContentNegotiation negotiation = new ContentNegotiation(
+            ImmutableList.of(new StubEncoding("application/json"), new StubEncoding("text/plain")));
+
+    @Test
+    public void testResponseEncodingIsCached() {
+        assertThat(negotiation.responseEncoding(accept("application/unknown, text/plain")))
+                .isEqualTo(1);
+        assertThat(negotiation.hits()).isZero();
+        assertThat(negotiation.misses()).isOne();
+
+        assertThat(negotiation.responseEncoding(accept("application/unknown, text/plain")))
+                .isEqualTo(1);
+        assertThat(negotiation.hits()).isOne();
+        assertThat(negotiation.misses()).isOne();
+    }
+
+    @Test
+    public void testResponseEncodingDefault() {
+        assertThat(negotiation.responseEncoding(null)).isZero();
+        assertThat(negotiation.responseEncoding(accept("application/unknown"))).isZero();
+        assertThat(negotiation.responseEncoding(accept("application/unknown"))).isZero();
+        assertThat(negotiation.hits()).isOne();
+    }
+
+    @Test
+    public void testMultipleAcceptHeaders() {
+        assertThat(negotiation.responseEncoding(accept("application/unknown", "text/plain")))
+                .isEqualTo(1);
+        assertThat(negotiation.responseEncoding(accept("application/unknown", "text/plain")))
+                .isEqualTo(1);
+        assertThat(negotiation.hits()).isZero();
+    }
+
+    @Test
+    public void testRequestEncodingIsCached() {
+        assertThat(negotiation.requestEncoding("text/plain")).isEqualTo(1);
+        assertThat(negotiation.requestEncoding("text/plain")).isEqualTo(1);
+        assertThat(negotiation.requestEncoding("application/unknown")).isEqualTo(ContentNegotiation.UNSUPPORTED);
+        assertThat(negotiation.requestEncoding("application/unknown")).isEqualTo(ContentNegotiation.UNSUPPORTED);
+        assertThat(negotiation.hits()).isEqualTo(2);
+        assertThat(negotiation.misses()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        for (int i = 0; i < ContentNegotiation.MAX_CACHED_VALUES; i++) {
+            assertThat(negotiation.requestEncoding("application/unknown-" + i))
+                    .isEqualTo(ContentNegotiation.UNSUPPORTED);
+        }
+        // Values beyond the limit are negotiated but not cached
+        assertThat(negotiation.requestEncoding("text/plain")).isEqualTo(1);
+        assertThat(negotiation.requestEncoding("text/plain")).isEqualTo(1);
+        assertThat(negotiation.hits()).isZero();
+        // Previously cached values continue to be served from the cache
+        assertThat(negotiation.requestEncoding("application/unknown-0")).isEqualTo(ContentNegotiation.UNSUPPORTED);
+        assertThat(negotiation.hits()).isOne();
+    }
+
+    @Test
+    public void testResponseEncodingWeights() {
+        ContentNegotiation standard = standardEncodings();
+        assertThat(standard.responseEncoding(accept("application/json;q=0.1, application/x-jackson-smile")))
+                .isEqualTo(SMILE);
+        assertThat(standard.responseEncoding(accept("application/x-jackson-smile;q=0.5, application/json")))
+                .isEqualTo(JSON);
+        assertThat(standard.responseEncoding(accept("application/json;q=0, application/cbor;q=0.2")))
+                .isEqualTo(CBOR);
+    }
+
+    @Test
+    public void testResponseEncodingPrefersCheapestOnTie() {
+        ContentNegotiation standard = standardEncodings();
+        assertThat(standard.responseEncoding(accept("application/json, application/x-jackson-smile")))
+                .isEqualTo(SMILE);
+        assertThat(standard.responseEncoding(accept("application/json;q=0.9, application/cbor;q=0.9")))
+                .isEqualTo(CBOR);
+    }
+
+    @Test
+    public void testResponseEncodingWildcards() {
+        ContentNegotiation standard = standardEncodings();
+        // Wildcards do not opt clients into binary encodings, the configured order applies
+        assertThat(standard.responseEncoding(accept("*/*"))).isEqualTo(JSON);
+        assertThat(standard.responseEncoding(accept("application/*"))).isEqualTo(JSON);
+        // Explicitly named media types are preferred to wildcard matches
+        assertThat(standard.responseEncoding(accept("application/cbor, */*"))).isEqualTo(CBOR);
+        assertThat(standard.responseEncoding(accept("application/json;q=0, */*"))).isEqualTo(SMILE);
+        assertThat(standard.responseEncoding(accept("text/*"))).isEqualTo(JSON);
+    }
+
+    @Test
+    public void testResponseEncodingNotAcceptable() {
+        assertThat(standardEncodings().responseEncoding(accept("*/*;q=0"))).isEqualTo(JSON);
+    }
+
+    private static ContentNegotiation standardEncodings() {
+        return new ContentNegotiation(ImmutableList.of(
+                new StubEncoding("application/json"),
+                new StubEncoding("application/x-jackson-smile"),
+                new StubEncoding("application/cbor")));
+    }
+
+    private static HeaderValues accept(String... values) {
+        HeaderMap headers = new HeaderMap();
+        for (String value : values) {
+            headers.add(Headers.ACCEPT, value);
+        }
+        return headers.get(Headers.ACCEPT);
+    }
+}
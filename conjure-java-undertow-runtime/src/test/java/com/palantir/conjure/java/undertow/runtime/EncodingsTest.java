@@ -37,6 +37,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import org.junit.jupiter.api.Test;
 
 final class EncodingsTest {
@@ -149,6 +150,31 @@ final class EncodingsTest {
                 .isEmpty();
     }
 
+    @Test
+    void json_optionalDeserializer_emptyBody() throws IOException {
+        assertThat(deserializeOptional(asStream(""), new TypeMarker<Optional<String>>() {}))
+                .isEmpty();
+        assertThat(deserializeOptional(asStream("  "), new TypeMarker<OptionalInt>() {}))
+                .isEmpty();
+        assertThat(deserializeOptional(asStream("null"), new TypeMarker<Optional<String>>() {}))
+                .isEmpty();
+    }
+
+    @Test
+    void json_optionalDeserializer_presentBody() throws IOException {
+        assertThat(deserializeOptional(asStream("\"value\""), new TypeMarker<Optional<String>>() {}))
+                .hasValue("value");
+        assertThat(deserializeOptional(asStream("12"), new TypeMarker<OptionalInt>() {}))
+                .hasValue(12);
+    }
+
+    @Test
+    void json_optionalDeserializer_invalidToken() {
+        assertThatThrownBy(() -> deserializeOptional(
+                        asStream("{\"invalid\"}"), new TypeMarker<Optional<SimpleObject>>() {}))
+                .isInstanceOf(SafeIllegalArgumentException.class);
+    }
+
     @Test
     public void json_serialize_doesNotCloseOutputStream() throws IOException {
         OutputStream outputStream = mock(OutputStream.class);
@@ -186,4 +212,8 @@ final class EncodingsTest {
     private <T> T deserialize(InputStream stream, TypeMarker<T> token) throws IOException {
         return json.deserializer(token).deserialize(stream);
     }
+
+    private <T> T deserializeOptional(InputStream stream, TypeMarker<T> token) throws IOException {
+        return ((OptionalBodyEncoding) json).optionalDeserializer(token).deserialize(stream);
+    }
 }
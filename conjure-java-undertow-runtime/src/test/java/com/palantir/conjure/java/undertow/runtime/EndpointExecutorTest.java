@@ -0,0 +1,131 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.HttpString;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class EndpointExecutorTest {
+
+    private static final HttpString THREAD = HttpString.tryFromString("Thread");
+
+    // A single thread without a queue, so a second concurrent request is rejected
+    private final ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(
+            1,
+            1,
+            1,
+            TimeUnit.MINUTES,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("bulkhead-%d").build());
+    private final ExecutorService tagged =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("tagged-%d").build());
+    private final ExecutorService service =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("service-%d").build());
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        HttpHandler threadName = exchange -> exchange.getResponseHeaders()
+                .put(THREAD, Thread.currentThread().getName());
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .services(EndpointService.of(
+                                endpoint("/slow", _exchange -> {
+                                    started.countDown();
+                                    release.await();
+                                }),
+                                endpointBuilder("/tagged", threadName).tags(ImmutableSet.of("health")).build(),
+                                endpoint("/shared", threadName),
+                                endpointBuilder("/other", threadName)
+                                        .serviceName("OtherService")
+                                        .tags(ImmutableSet.of("health"))
+                                        .build()))
+                        .endpointExecutor("TestService", "slow", bulkhead)
+                        .tagExecutor("health", tagged)
+                        .serviceExecutor("OtherService", service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        release.countDown();
+        server.stop();
+        bulkhead.shutdownNow();
+        tagged.shutdownNow();
+        service.shutdownNow();
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void testSelectsExecutor() throws IOException {
+        assertThat(threadName("/tagged")).startsWith("tagged-");
+        // Service mappings take precedence over tags
+        assertThat(threadName("/other")).startsWith("service-");
+        assertThat(threadName("/shared")).doesNotStartWith("tagged-").doesNotStartWith("service-");
+    }
+
+    @Test
+    public void testRejectsWhenExecutorIsFull() throws Exception {
+        Future<Integer> first = clients.submit(() -> {
+            try (Response response = execute("/slow")) {
+                return response.code();
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        try (Response response = execute("/slow")) {
+            assertThat(response.code()).isEqualTo(503);
+        }
+        // Other endpoints are not affected
+        assertThat(threadName("/shared")).isNotNull();
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+    }
+
+    private static String threadName(String path) throws IOException {
+        try (Response response = execute(path)) {
+            assertThat(response.code()).isEqualTo(200);
+            return response.header("Thread");
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public final class ErrorLogSamplingTest {
+
+    private static final String INTERNAL = "Default:Internal";
+    private static final String NOT_FOUND = "Default:NotFound";
+
+    private final AtomicLong clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+    private final ErrorLogSampling sampling = new ErrorLogSampling(
+            ErrorLogSampling.builder()
+                    .defaultLimit(1, 3)
+                    .limit(NOT_FOUND, 10, 1)
+                    .summaryInterval(Duration.ofMinutes(1)),
+            clock::get);
+
+    @Test
+    public void testAllowsBurstThenSteadyRate() {
+        assertThat(countLogged(INTERNAL, 10)).isEqualTo(3);
+        advance(Duration.ofMillis(999));
+        assertThat(countLogged(INTERNAL, 10)).isZero();
+        advance(Duration.ofMillis(1));
+        assertThat(countLogged(INTERNAL, 10)).isEqualTo(1);
+        // Idle time refills the bucket, but no further than the burst
+        advance(Duration.ofHours(1));
+        assertThat(countLogged(INTERNAL, 10)).isEqualTo(3);
+    }
+
+    @Test
+    public void testLimitsEachErrorNameIndependently() {
+        assertThat(countLogged(INTERNAL, 10)).isEqualTo(3);
+        assertThat(countLogged(NOT_FOUND, 10)).isEqualTo(1);
+        assertThat(countLogged("Remote:Unavailable", 10)).isEqualTo(3);
+        advance(Duration.ofMillis(100));
+        assertThat(countLogged(NOT_FOUND, 10)).isEqualTo(1);
+        assertThat(countLogged(INTERNAL, 10)).isZero();
+    }
+
+    @Test
+    public void testSummarizesSuppressedLogs() {
+        countLogged(INTERNAL, 10);
+        countLogged(NOT_FOUND, 5);
+        assertThat(sampling.pollSuppressed()).isEmpty();
+        advance(Duration.ofMinutes(1));
+        assertThat(sampling.pollSuppressed()).containsOnly(entry(INTERNAL, 7L), entry(NOT_FOUND, 4L));
+        // Each summary is reported once, and counts are reset
+        assertThat(sampling.pollSuppressed()).isEmpty();
+        advance(Duration.ofMinutes(1));
+        assertThat(sampling.pollSuppressed()).isEmpty();
+    }
+
+    @Test
+    public void testRetainsSuppressedLogsUntilNextFailureAfterBurstStops() {
+        countLogged(INTERNAL, 10);
+        advance(Duration.ofSeconds(30));
+        assertThat(sampling.pollSuppressed()).isEmpty();
+        // No failures are handled for a long time, so nothing polls for a summary, but the counts are not lost
+        advance(Duration.ofHours(1));
+        assertThat(sampling.pollSuppressed()).containsOnly(entry(INTERNAL, 7L));
+        assertThat(sampling.pollSuppressed()).isEmpty();
+    }
+
+    @Test
+    public void testUnlimited() {
+        ErrorLogSampling unlimited = new ErrorLogSampling(ErrorLogSampling.builder().noDefaultLimit(), clock::get);
+        assertThat(countLogged(unlimited, INTERNAL, 100)).isEqualTo(100);
+        assertThat(countLogged(ErrorLogSampling.UNLIMITED, INTERNAL, 100)).isEqualTo(100);
+    }
+
+    private long countLogged(String errorName, int failures) {
+        return countLogged(sampling, errorName, failures);
+    }
+
+    private static long countLogged(ErrorLogSampling sampling, String errorName, int failures) {
+        return IntStream.range(0, failures)
+                .filter(_i -> sampling.tryAcquire(errorName))
+                .count();
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
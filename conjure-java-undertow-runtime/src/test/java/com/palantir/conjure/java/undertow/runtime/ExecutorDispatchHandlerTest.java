@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.Undertow;
+import io.undertow.util.HttpString;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+public final class ExecutorDispatchHandlerTest {
+
+    private static final HttpString THREAD = HttpString.tryFromString("Thread");
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("blocking-executor-%d").build());
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder()
+                                .blockingExecutor(executor)
+                                .maxConcurrentRequestsPerEndpoint(1)
+                                .build())
+                        .services(EndpointService.of(
+                                endpoint("/thread", exchange -> {
+                                    exchange.getResponseHeaders()
+                                            .put(THREAD, Thread.currentThread().getName())
+                                            .put(HttpString.tryFromString("Mdc"), String.valueOf(MDC.get("stale")));
+                                    MDC.put("stale", "value");
+                                }),
+                                endpoint("/wait", exchange -> {
+                                    // Completion listeners run in reverse order, so proceeding first runs the
+                                    // listener which releases the permit before the latch is counted down.
+                                    exchange.addExchangeCompleteListener((_exchange, nextListener) -> {
+                                        nextListener.proceed();
+                                        completed.countDown();
+                                    });
+                                    started.countDown();
+                                    release.await();
+                                })))
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        release.countDown();
+        server.stop();
+        executor.shutdownNow();
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void testDispatchesToExecutor() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            try (Response response = execute("/thread")) {
+                assertThat(response.code()).isEqualTo(200);
+                assertThat(response.header("Thread")).startsWith("blocking-executor-");
+                assertThat(response.header("Mdc")).isEqualTo("null");
+            }
+        }
+    }
+
+    @Test
+    public void testBoundsConcurrentRequests() throws Exception {
+        Future<Integer> first = clients.submit(() -> {
+            try (Response response = execute("/wait")) {
+                return response.code();
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        try (Response response = execute("/wait")) {
+            assertThat(response.code()).isEqualTo(503);
+        }
+        // Other endpoints have their own limit
+        try (Response response = execute("/thread")) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+        // The permit is released once the first exchange completes, which may be after the client has the response
+        assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        try (Response response = execute("/wait")) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+    }
+}
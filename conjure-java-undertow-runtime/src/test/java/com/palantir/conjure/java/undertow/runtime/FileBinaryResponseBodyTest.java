@@ -0,0 +1,127 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.lib.BinaryResponseBody;
+import com.palantir.conjure.java.undertow.lib.FileBinaryResponseBody;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.Undertow;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class FileBinaryResponseBodyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicReference<BinaryResponseBody> body = new AtomicReference<>();
+    private Undertow server;
+    private byte[] data;
+    private Path file;
+
+    @BeforeEach
+    public void before() throws IOException {
+        data = new byte[1024 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        file = Files.write(tempDir.resolve("data.bin"), data);
+        UndertowService service = runtime ->
+                ImmutableList.of(endpoint("/file", exchange -> runtime.bodySerDe().serialize(body.get(), exchange)));
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder().build())
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void testEntireFile() throws IOException {
+        body.set(FileBinaryResponseBody.of(file));
+        try (Response response = execute("/file")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Type")).isEqualTo("application/octet-stream");
+            assertThat(response.header("Content-Length")).isEqualTo(Integer.toString(data.length));
+            assertThat(response.body().bytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void testRegion() throws IOException {
+        body.set(FileBinaryResponseBody.of(file, 1000, 5000));
+        try (Response response = execute("/file")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Length")).isEqualTo("5000");
+            assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 1000, 6000));
+        }
+    }
+
+    @Test
+    public void testConnectionReuse() throws IOException {
+        body.set(FileBinaryResponseBody.of(file, 10, 100));
+        for (int i = 0; i < 3; i++) {
+            try (Response response = execute("/file")) {
+                assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 10, 110));
+            }
+        }
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        body.set(FileBinaryResponseBody.of(tempDir.resolve("missing.bin")));
+        try (Response response = execute("/file")) {
+            assertThat(response.code()).isEqualTo(500);
+        }
+    }
+
+    @Test
+    public void testRegionExceedsFile() throws IOException {
+        body.set(FileBinaryResponseBody.of(file, data.length - 10, 100));
+        try (Response response = execute("/file")) {
+            assertThat(response.code()).isEqualTo(500);
+        }
+    }
+
+    @Test
+    public void testWriteCopiesRegion() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileBinaryResponseBody.of(file, 1, 3).write(output);
+        assertThat(output.toByteArray()).containsExactly(1, 2, 3);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.tokens.auth.UnverifiedJsonWebToken;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public final class JsonWebTokenCacheTest {
+
+    // Expires at 1459552349 seconds since the epoch
+    private static final String SESSION_TOKEN = "eyJhbGciOiJFUzI1NiJ9."
+            + "eyJleHAiOjE0NTk1NTIzNDksInNpZCI6IlA4WmoxRDVJVGUyNlR0Z"
+            + "UsrWXVEWXc9PSIsInN1YiI6Inc1UDJXUU1CUTA2cHlYSXdTbEIvL0E9PSJ9"
+            + ".XwPO_EEDVj6BBLScuf70_CH4jyI1ECmgVSoXLHpGlK-yIqm8MyUyFyNQTu8jh9kYheW-zBl64gmTnatkjjDH1A";
+    private static final long SESSION_TOKEN_EXPIRY_MILLIS = TimeUnit.SECONDS.toMillis(1459552349);
+
+    // Does not expire
+    private static final String API_TOKEN = "eyJhbGciOiJFUzI1NiJ9."
+            + "eyJzdWIiOiJ3NVAyV1FNQlEwNnB5WEl3U2xCLy9BPT0iLCJqdGkiOiJwRm0wb1ZDSlQrQ0dWZFhmMmJLMy9RPT0ifQ."
+            + "hBUerwGsc4FFPIujHJ-7ncGe3-zZQcdPOuRZ8B84nzPNYjlyPmB8VLizsvR23CK3KQUEAlQ2AN_9a5p5_WgPAQ";
+
+    private final AtomicLong clock = new AtomicLong(SESSION_TOKEN_EXPIRY_MILLIS - 1000);
+    private final JsonWebTokenCache cache = new JsonWebTokenCache(1, clock::get);
+
+    @Test
+    public void testCachesParsedTokens() {
+        Optional<UnverifiedJsonWebToken> first = cache.get(SESSION_TOKEN);
+        assertThat(first).isPresent();
+        assertThat(first.get().getUnverifiedUserId()).isEqualTo("c393f659-0301-434e-a9c9-72304a507ffc");
+        assertThat(cache.get(SESSION_TOKEN)).isSameAs(first);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDoesNotUseExpiredTokens() {
+        Optional<UnverifiedJsonWebToken> first = cache.get(SESSION_TOKEN);
+        clock.set(SESSION_TOKEN_EXPIRY_MILLIS);
+        Optional<UnverifiedJsonWebToken> second = cache.get(SESSION_TOKEN);
+        assertThat(second).isPresent().isNotSameAs(first);
+        assertThat(cache.get(SESSION_TOKEN)).isNotSameAs(second);
+        assertThat(cache.hits()).isZero();
+        assertThat(cache.misses()).isEqualTo(3);
+    }
+
+    @Test
+    public void testCachesTokensWithoutExpiry() {
+        clock.set(Long.MAX_VALUE - 1);
+        Optional<UnverifiedJsonWebToken> first = cache.get(API_TOKEN);
+        assertThat(first).isPresent();
+        assertThat(cache.get(API_TOKEN)).isSameAs(first);
+        assertThat(cache.get("IncorrectBearerToken")).isEmpty();
+        assertThat(cache.get("IncorrectBearerToken")).isEmpty();
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+}
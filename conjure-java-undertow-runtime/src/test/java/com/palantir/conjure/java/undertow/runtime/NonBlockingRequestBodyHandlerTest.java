@@ -0,0 +1,170 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.lib.Deserializer;
+import com.palantir.conjure.java.undertow.lib.Serializer;
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Methods;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class NonBlockingRequestBodyHandlerTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final int MAX_BYTES = 64;
+    private static final String LARGE_VALUE = Strings.repeat("a", MAX_BYTES);
+
+    private final AtomicBoolean handledInIoThread = new AtomicBoolean();
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        UndertowService service = runtime -> {
+            Deserializer<String> required = runtime.bodySerDe().deserializer(new TypeMarker<String>() {});
+            Deserializer<Optional<String>> optional =
+                    runtime.bodySerDe().deserializer(new TypeMarker<Optional<String>>() {});
+            Serializer<String> serializer = runtime.bodySerDe().serializer(new TypeMarker<String>() {});
+            HttpHandler requiredHandler = exchange -> {
+                handledInIoThread.set(exchange.isInIoThread());
+                serializer.serialize(required.deserialize(exchange), exchange);
+            };
+            HttpHandler optionalHandler =
+                    exchange -> serializer.serialize(optional.deserialize(exchange).orElse("empty"), exchange);
+            return ImmutableList.of(
+                    endpointBuilder("/required", requiredHandler).method(Methods.POST).build(),
+                    endpointBuilder("/optional", optionalHandler).method(Methods.POST).build());
+        };
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder()
+                                .nonBlockingRequestBodies(true)
+                                .maxNonBlockingRequestBodyBytes(MAX_BYTES)
+                                .build())
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void deserializesBufferedBody() throws IOException {
+        try (Response response = execute("/required", RequestBody.create("\"hello\"", JSON))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"hello\"");
+        }
+        assertThat(handledInIoThread).isFalse();
+    }
+
+    @Test
+    public void deserializesChunkedBody() throws IOException {
+        try (Response response = execute("/required", chunked("\"hel", "lo\""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"hello\"");
+        }
+    }
+
+    @Test
+    public void malformedBodyIsBadRequest() throws IOException {
+        try (Response response = execute("/required", RequestBody.create("{\"invalid\"}", JSON))) {
+            assertThat(response.code()).isEqualTo(400);
+        }
+    }
+
+    @Test
+    public void nullBodyIsBadRequest() throws IOException {
+        try (Response response = execute("/required", RequestBody.create("null", JSON))) {
+            assertThat(response.code()).isEqualTo(400);
+        }
+    }
+
+    @Test
+    public void emptyChunkedOptionalBody() throws IOException {
+        try (Response response = execute("/optional", chunked())) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"empty\"");
+        }
+    }
+
+    @Test
+    public void presentChunkedOptionalBody() throws IOException {
+        try (Response response = execute("/optional", chunked("\"value\""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"value\"");
+        }
+    }
+
+    @Test
+    public void largeBodyIsNotBuffered() throws IOException {
+        try (Response response = execute("/required", RequestBody.create("\"" + LARGE_VALUE + "\"", JSON))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"" + LARGE_VALUE + "\"");
+        }
+    }
+
+    @Test
+    public void largeChunkedBodyIsTooLarge() throws IOException {
+        try (Response response = execute("/required", chunked("\"", LARGE_VALUE, "\""))) {
+            assertThat(response.code()).isEqualTo(413);
+        }
+    }
+
+    private static Response execute(String path, RequestBody body) throws IOException {
+        return TestEndpoints.execute(request(path).post(body));
+    }
+
+    /** Request body without a known length, which is sent using {@code Transfer-Encoding: chunked}. */
+    private static RequestBody chunked(String... chunks) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                for (String chunk : chunks) {
+                    sink.writeUtf8(chunk);
+                    sink.flush();
+                }
+            }
+        };
+    }
+}
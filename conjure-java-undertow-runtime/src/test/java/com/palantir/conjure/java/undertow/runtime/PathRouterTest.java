@@ -0,0 +1,195 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.palantir.conjure.java.undertow.HttpServerExchanges;
+import com.palantir.conjure.java.undertow.lib.PathParameters;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.URLDecodingHandler;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import io.undertow.util.PathTemplateMatch;
+import org.junit.jupiter.api.Test;
+import org.xnio.OptionMap;
+
+public final class PathRouterTest {
+
+    private static final String FALLBACK = "fallback";
+    private static final HttpString ROUTE = HttpString.tryFromString("Route");
+
+    private final PathRouter router = PathRouter.builder()
+            .add(Methods.GET, "/", named("root"))
+            .add(Methods.GET, "/catalog/datasets", named("datasets"))
+            .add(Methods.GET, "/catalog/datasets/{datasetRid}", named("dataset"))
+            .add(Methods.POST, "/catalog/datasets/{datasetRid}", named("updateDataset"))
+            .add(Methods.GET, "/catalog/datasets/{datasetRid}/branches/{branch}", named("branch"))
+            .add(Methods.GET, "/catalog/datasets/latest/branches", named("latestBranches"))
+            .add(Methods.GET, "/catalog/{a}/{b}/{c}/files", named("files"))
+            .add(Methods.GET, "/mixed/prefix{param}", named("mixed"))
+            .build(named(FALLBACK));
+
+    @Test
+    public void testLiteralRoutes() throws Exception {
+        assertThat(route(Methods.GET, "/")).isEqualTo("root");
+        assertThat(route(Methods.GET, "/catalog/datasets")).isEqualTo("datasets");
+        assertThat(route(Methods.GET, "/catalog/datasets/")).isEqualTo("datasets");
+    }
+
+    @Test
+    public void testParameters() throws Exception {
+        HttpServerExchange exchange = exchange(Methods.GET, "/catalog/datasets/ri.rid/branches/master");
+        router.handleRequest(exchange);
+        assertThat(exchange.getResponseHeaders().getFirst(ROUTE)).isEqualTo("branch");
+        PathTemplateMatch match = exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY);
+        assertThat(match.getMatchedTemplate()).isEqualTo("/catalog/datasets/{datasetRid}/branches/{branch}");
+        assertThat(match.getParameters())
+                .containsEntry("datasetRid", "ri.rid")
+                .containsEntry("branch", "master")
+                .hasSize(2);
+        assertThat(exchange.getQueryParameters().get("branch")).containsExactly("master");
+    }
+
+    @Test
+    public void testIndexedParameters() throws Exception {
+        HttpServerExchange exchange = exchange(Methods.GET, "/catalog/datasets/ri.rid/branches/master");
+        router.handleRequest(exchange);
+        PathParameters parameters = PathParameters.of(exchange);
+        assertThat(parameters.get(0, "datasetRid")).isEqualTo("ri.rid");
+        assertThat(parameters.get(1, "branch")).isEqualTo("master");
+        // Parameters are found by name when the index does not match
+        assertThat(parameters.get(0, "branch")).isEqualTo("master");
+        assertThat(parameters.get(5, "datasetRid")).isEqualTo("ri.rid");
+        assertThat(parameters.get(0, "unknown")).isNull();
+    }
+
+    @Test
+    public void testParametersDecodedInPlace() throws Exception {
+        // Servers which disable DECODE_URL rely on URLDecodingHandler to decode path parameters in place
+        PathRouter decoding = PathRouter.builder()
+                .add(Methods.GET, "/catalog/datasets/{datasetRid}", new URLDecodingHandler(named("dataset"), "UTF-8"))
+                .build(named(FALLBACK));
+        HttpServerExchange exchange =
+                HttpServerExchanges.createStub(OptionMap.create(UndertowOptions.DECODE_URL, false));
+        exchange.setRequestPath("/catalog/datasets/a%2Fb%20c");
+        exchange.setRelativePath("/catalog/datasets/a%2Fb%20c");
+        decoding.handleRequest(exchange);
+        assertThat(exchange.getResponseHeaders().getFirst(ROUTE)).isEqualTo("dataset");
+        assertThat(exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters())
+                .containsExactly(entry("datasetRid", "a/b c"));
+        assertThat(PathParameters.of(exchange).get(0, "datasetRid")).isEqualTo("a/b c");
+    }
+
+    @Test
+    public void testIndexedParametersFromDelegatedTemplates() throws Exception {
+        PathRouter delegating = PathRouter.builder()
+                .add(Methods.GET, "/mixed/prefix{param}", named("mixed"))
+                .build(named(FALLBACK));
+        HttpServerExchange exchange = exchange(Methods.GET, "/mixed/prefixvalue");
+        delegating.handleRequest(exchange);
+        assertThat(PathParameters.of(exchange).get(0, "param")).isEqualTo("value");
+    }
+
+    @Test
+    public void testLiteralsPreferredOverParameters() throws Exception {
+        assertThat(route(Methods.GET, "/catalog/datasets/latest/branches")).isEqualTo("latestBranches");
+        assertThat(route(Methods.GET, "/catalog/datasets/latest")).isEqualTo("dataset");
+    }
+
+    @Test
+    public void testBacktracksToParameters() throws Exception {
+        HttpServerExchange exchange = exchange(Methods.GET, "/catalog/datasets/latest/x/files");
+        router.handleRequest(exchange);
+        assertThat(exchange.getResponseHeaders().getFirst(ROUTE)).isEqualTo("files");
+        assertThat(exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY).getParameters())
+                .containsEntry("a", "datasets")
+                .containsEntry("b", "latest")
+                .containsEntry("c", "x")
+                .hasSize(3);
+    }
+
+    @Test
+    public void testManyLiterals() throws Exception {
+        PathRouter.Builder builder = PathRouter.builder()
+                .add(Methods.GET, "/items/{id}", named("item"))
+                // Distinct segments with the same hash code
+                .add(Methods.GET, "/items/Aa", named("Aa"))
+                .add(Methods.GET, "/items/BB", named("BB"));
+        for (int i = 0; i < 100; i++) {
+            builder.add(Methods.GET, "/items/literal" + i, named("literal" + i));
+        }
+        PathRouter manyLiterals = builder.build(named(FALLBACK));
+        for (int i = 0; i < 100; i++) {
+            assertThat(route(manyLiterals, Methods.GET, "/items/literal" + i)).isEqualTo("literal" + i);
+        }
+        assertThat(route(manyLiterals, Methods.GET, "/items/Aa")).isEqualTo("Aa");
+        assertThat(route(manyLiterals, Methods.GET, "/items/BB")).isEqualTo("BB");
+        assertThat(route(manyLiterals, Methods.GET, "/items/literal")).isEqualTo("item");
+        assertThat(route(manyLiterals, Methods.GET, "/items/literal100")).isEqualTo("item");
+    }
+
+    @Test
+    public void testMethods() throws Exception {
+        assertThat(route(Methods.POST, "/catalog/datasets/ri.rid")).isEqualTo("updateDataset");
+        assertThat(route(Methods.PUT, "/catalog/datasets/ri.rid")).isEqualTo(FALLBACK);
+    }
+
+    @Test
+    public void testUnmatched() throws Exception {
+        assertThat(route(Methods.GET, "/unknown")).isEqualTo(FALLBACK);
+        assertThat(route(Methods.GET, "/catalog/datasets/ri.rid/branches")).isEqualTo(FALLBACK);
+        assertThat(route(Methods.GET, "/catalog//datasets")).isEqualTo(FALLBACK);
+    }
+
+    @Test
+    public void testDelegatesUnsupportedTemplates() throws Exception {
+        assertThat(route(Methods.GET, "/mixed/prefixvalue")).isEqualTo("mixed");
+    }
+
+    @Test
+    public void testDuplicateRoutes() {
+        PathRouter.Builder builder = PathRouter.builder().add(Methods.GET, "/path/{a}", named("a"));
+        assertThatThrownBy(() -> builder.add(Methods.GET, "/path/{b}", named("b")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String route(HttpString method, String path) throws Exception {
+        return route(router, method, path);
+    }
+
+    private static String route(PathRouter pathRouter, HttpString method, String path) throws Exception {
+        HttpServerExchange exchange = exchange(method, path);
+        pathRouter.handleRequest(exchange);
+        return exchange.getResponseHeaders().getFirst(ROUTE);
+    }
+
+    private static HttpServerExchange exchange(HttpString method, String path) {
+        HttpServerExchange exchange = HttpServerExchanges.createStub();
+        exchange.setRequestMethod(method);
+        exchange.setRelativePath(path);
+        return exchange;
+    }
+
+    private static HttpHandler named(String name) {
+        return exchange -> exchange.getResponseHeaders().put(ROUTE, name);
+    }
+}
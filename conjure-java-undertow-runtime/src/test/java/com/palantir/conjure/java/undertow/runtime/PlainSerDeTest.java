@@ -18,8 +18,10 @@ package com.palantir.conjure.java.undertow.runtime;
 
 import static com.palantir.logsafe.testing.Assertions.assertThatLoggableExceptionThrownBy;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.conjure.java.lib.SafeLong;
 import com.palantir.conjure.java.undertow.lib.PlainSerDe;
 import com.palantir.logsafe.SafeArg;
@@ -30,11 +32,14 @@ import com.palantir.tokens.auth.BearerToken;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 public final class PlainSerDeTest {
@@ -107,6 +112,41 @@ public final class PlainSerDeTest {
                         SafeArg.of("size", 3), UnsafeArg.of("received", ImmutableList.of("one", "two", "three")));
     }
 
+    @Test
+    public void testPrimitiveCollections() {
+        List<String> values = ImmutableList.of("3", "1", "3", "-0", "2", "1");
+        assertThat(PLAIN.deserializeIntegerList(values)).containsExactly(3, 1, 3, 0, 2, 1);
+        assertThat(PLAIN.deserializeIntegerSet(values))
+                .containsExactly(3, 1, 0, 2)
+                .isEqualTo(ImmutableSet.of(0, 1, 2, 3));
+        assertThat(PLAIN.deserializeIntegerSet(values).contains(4)).isFalse();
+        assertThat(PLAIN.deserializeDoubleList(values)).containsExactly(3.0, 1.0, 3.0, -0.0, 2.0, 1.0);
+        assertThat(PLAIN.deserializeDoubleSet(values)).containsExactly(3.0, 1.0, -0.0, 2.0);
+        // Consistent with Double.equals
+        assertThat(PLAIN.deserializeDoubleSet(values).contains(0.0)).isFalse();
+        assertThat(PLAIN.deserializeSafeLongSet(values))
+                .containsExactly(SafeLong.of(3), SafeLong.of(1), SafeLong.of(0), SafeLong.of(2));
+        assertThat(PLAIN.deserializeSafeLongList(values))
+                .containsExactly(
+                        SafeLong.of(3), SafeLong.of(1), SafeLong.of(3), SafeLong.of(0), SafeLong.of(2), SafeLong.of(1));
+        assertThatThrownBy(() -> PLAIN.deserializeIntegerList(values).set(0, 1))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> PLAIN.deserializeIntegerSet(values).add(4))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testPrimitiveCollectionsOfUnknownSize() {
+        Iterable<String> values = () -> IntStream.range(0, 1000).mapToObj(Integer::toString).iterator();
+        assertThat(PLAIN.deserializeIntegerList(values))
+                .isEqualTo(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+        assertThat(PLAIN.deserializeIntegerSet(values))
+                .hasSize(1000)
+                .containsExactlyElementsOf(PLAIN.deserializeIntegerList(values));
+        assertThat(PLAIN.deserializeIntegerList(ImmutableList.of())).isEmpty();
+        assertThat(PLAIN.deserializeIntegerSet(ImmutableList.of())).isEmpty();
+    }
+
     private static <T> void runDeserializerTest(String typeName, String plainIn, T want) throws Exception {
         runDeserializerTest(typeName, plainIn, want, Optional::of);
     }
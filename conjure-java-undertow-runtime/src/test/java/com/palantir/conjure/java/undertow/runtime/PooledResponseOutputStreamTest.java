@@ -0,0 +1,131 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.lib.Serializer;
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import com.palantir.logsafe.exceptions.SafeIllegalStateException;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.PathTemplateMatch;
+import java.io.IOException;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class PooledResponseOutputStreamTest {
+
+    private static final int LIMIT = 64 * 1024;
+
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        UndertowService service = runtime -> {
+            Serializer<String> serializer = runtime.bodySerDe().serializer(new TypeMarker<String>() {});
+            Serializer<FailingValue> failingSerializer =
+                    runtime.bodySerDe().serializer(new TypeMarker<FailingValue>() {});
+            HttpHandler stringHandler = exchange -> {
+                int length = Integer.parseInt(exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY)
+                        .getParameters()
+                        .get("length"));
+                serializer.serialize(Strings.repeat("a", length), exchange);
+            };
+            return ImmutableList.of(
+                    endpointBuilder("/string/{length}", stringHandler).name("string").build(),
+                    endpoint("/failing", exchange -> failingSerializer.serialize(new FailingValue(), exchange)));
+        };
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder()
+                                .maxBufferedResponseBytes(LIMIT)
+                                .build())
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void testSmallResponseHasContentLength() throws IOException {
+        try (Response response = execute("/string/10")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Length")).isEqualTo("12");
+            assertThat(response.header("Transfer-Encoding")).isNull();
+            assertThat(response.body().string()).isEqualTo('"' + Strings.repeat("a", 10) + '"');
+        }
+    }
+
+    @Test
+    public void testMultipleBuffersHaveContentLength() throws IOException {
+        // Larger than a single pooled buffer, but below the limit
+        int length = LIMIT - 2;
+        try (Response response = execute("/string/" + length)) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Length")).isEqualTo(Integer.toString(LIMIT));
+            assertThat(response.body().string()).hasSize(LIMIT);
+        }
+    }
+
+    @Test
+    public void testLargeResponseIsStreamed() throws IOException {
+        int length = LIMIT * 2;
+        try (Response response = execute("/string/" + length)) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Length")).isNull();
+            assertThat(response.header("Transfer-Encoding")).isEqualTo("chunked");
+            assertThat(response.body().string()).isEqualTo('"' + Strings.repeat("a", length) + '"');
+        }
+    }
+
+    @Test
+    public void testSerializationFailureIsReplacedByError() throws IOException {
+        try (Response response = execute("/failing")) {
+            assertThat(response.code()).isEqualTo(500);
+            assertThat(response.body().string()).contains("\"errorCode\":\"INTERNAL\"");
+        }
+    }
+
+    /** Fails to serialize after more than Jackson's internal buffer has been written. */
+    @JsonPropertyOrder({"value", "failure"})
+    public static final class FailingValue {
+
+        public String getValue() {
+            return Strings.repeat("a", 32 * 1024);
+        }
+
+        public String getFailure() {
+            throw new SafeIllegalStateException("Failed to serialize");
+        }
+    }
+}
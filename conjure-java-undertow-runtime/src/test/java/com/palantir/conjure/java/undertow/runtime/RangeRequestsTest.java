@@ -0,0 +1,204 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.FileBinaryResponseBody;
+import com.palantir.conjure.java.undertow.lib.UndertowRuntime;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.Undertow;
+import io.undertow.util.DateUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Set;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class RangeRequestsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Undertow server;
+    private byte[] data;
+
+    @BeforeEach
+    public void before() throws IOException {
+        data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path file = Files.write(tempDir.resolve("data.bin"), data);
+        UndertowService service = runtime -> ImmutableList.of(
+                fileEndpoint("/ranges", ImmutableSet.of(RangeRequests.TAG), runtime, FileBinaryResponseBody.of(file)),
+                fileEndpoint(
+                        "/region",
+                        ImmutableSet.of(RangeRequests.TAG),
+                        runtime,
+                        FileBinaryResponseBody.of(file, 100, 1000)),
+                fileEndpoint("/disabled", ImmutableSet.of(), runtime, FileBinaryResponseBody.of(file)));
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder().build())
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void testParse() {
+        assertRange(RangeRequests.parse("bytes=0-99", 1000), 0, 100);
+        assertRange(RangeRequests.parse("bytes=900-", 1000), 900, 100);
+        assertRange(RangeRequests.parse("bytes=-100", 1000), 900, 100);
+        assertRange(RangeRequests.parse("bytes=-5000", 1000), 0, 1000);
+        assertRange(RangeRequests.parse("bytes=500-5000", 1000), 500, 500);
+        assertRange(RangeRequests.parse("Bytes=1-1", 1000), 1, 1);
+        assertThat(RangeRequests.parse("bytes=1000-", 1000)).isSameAs(RangeRequests.ByteRange.UNSATISFIABLE);
+        assertThat(RangeRequests.parse("bytes=-0", 1000)).isSameAs(RangeRequests.ByteRange.UNSATISFIABLE);
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertThat(RangeRequests.parse("bytes=0-1,5-6", 1000)).isNull();
+        assertThat(RangeRequests.parse("bytes=5-1", 1000)).isNull();
+        assertThat(RangeRequests.parse("bytes=a-1", 1000)).isNull();
+        assertThat(RangeRequests.parse("bytes=1-a", 1000)).isNull();
+        assertThat(RangeRequests.parse("bytes=-", 1000)).isNull();
+        assertThat(RangeRequests.parse("items=0-1", 1000)).isNull();
+    }
+
+    @Test
+    public void testPartialContent() throws IOException {
+        try (Response response = execute("/ranges", "bytes=100-199", null)) {
+            assertThat(response.code()).isEqualTo(206);
+            assertThat(response.header("Content-Range")).isEqualTo("bytes 100-199/10000");
+            assertThat(response.header("Content-Length")).isEqualTo("100");
+            assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 100, 200));
+        }
+    }
+
+    @Test
+    public void testResumeDownload() throws IOException {
+        try (Response response = execute("/ranges", "bytes=9000-", null)) {
+            assertThat(response.code()).isEqualTo(206);
+            assertThat(response.header("Content-Range")).isEqualTo("bytes 9000-9999/10000");
+            assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 9000, 10_000));
+        }
+    }
+
+    @Test
+    public void testRangeWithinRegion() throws IOException {
+        try (Response response = execute("/region", "bytes=-10", null)) {
+            assertThat(response.code()).isEqualTo(206);
+            assertThat(response.header("Content-Range")).isEqualTo("bytes 990-999/1000");
+            assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 1090, 1100));
+        }
+    }
+
+    @Test
+    public void testNoRange() throws IOException {
+        try (Response response = execute("/ranges", null, null)) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Accept-Ranges")).isEqualTo("bytes");
+            assertThat(response.header("Last-Modified")).isNotNull();
+            assertThat(response.body().bytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void testUnsatisfiable() throws IOException {
+        try (Response response = execute("/ranges", "bytes=20000-", null)) {
+            assertThat(response.code()).isEqualTo(416);
+            assertThat(response.header("Content-Range")).isEqualTo("bytes */10000");
+            assertThat(response.body().bytes()).isEmpty();
+        }
+    }
+
+    @Test
+    public void testIfRangeMatches() throws IOException {
+        String lastModified;
+        try (Response response = execute("/ranges", null, null)) {
+            lastModified = response.header("Last-Modified");
+        }
+        try (Response response = execute("/ranges", "bytes=0-9", lastModified)) {
+            assertThat(response.code()).isEqualTo(206);
+            assertThat(response.body().bytes()).isEqualTo(Arrays.copyOfRange(data, 0, 10));
+        }
+    }
+
+    @Test
+    public void testIfRangeDoesNotMatch() throws IOException {
+        try (Response response = execute("/ranges", "bytes=0-9", DateUtils.toDateString(new Date(0)))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().bytes()).isEqualTo(data);
+        }
+        try (Response response = execute("/ranges", "bytes=0-9", "\"etag\"")) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void testDisabledEndpoint() throws IOException {
+        try (Response response = execute("/disabled", "bytes=0-9", null)) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Accept-Ranges")).isNull();
+            assertThat(response.body().bytes()).isEqualTo(data);
+        }
+    }
+
+    private static void assertRange(RangeRequests.ByteRange range, long start, long length) {
+        assertThat(range).isNotNull();
+        assertThat(range.start()).isEqualTo(start);
+        assertThat(range.length()).isEqualTo(length);
+    }
+
+    private static Endpoint fileEndpoint(
+            String template, Set<String> tags, UndertowRuntime runtime, FileBinaryResponseBody body) {
+        return endpointBuilder(template, exchange -> runtime.bodySerDe().serialize(body, exchange)).tags(tags).build();
+    }
+
+    private static Response execute(String path, String range, String ifRange) throws IOException {
+        Request.Builder request = request(path);
+        if (range != null) {
+            request.header("Range", range);
+        }
+        if (ifRange != null) {
+            request.header("If-Range", ifRange);
+        }
+        return TestEndpoints.execute(request);
+    }
+}
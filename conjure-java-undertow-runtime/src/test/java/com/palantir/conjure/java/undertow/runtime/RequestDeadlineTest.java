@@ -0,0 +1,136 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpoint;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.execute;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import io.undertow.Undertow;
+import io.undertow.util.HttpString;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class RequestDeadlineTest {
+
+    private static final HttpString REMAINING = HttpString.tryFromString("Remaining-Millis");
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ConjureUndertowRuntime runtime =
+            ConjureUndertowRuntime.builder().blockingExecutor(executor).build();
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final CountDownLatch received = new CountDownLatch(1);
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        Endpoint endpoint = endpoint("/deadline", exchange -> {
+            invocations.incrementAndGet();
+            runtime.contexts()
+                    .createContext(exchange, null)
+                    .timeRemaining()
+                    .ifPresent(remaining -> exchange.getResponseHeaders().put(REMAINING, remaining.toMillis()));
+        });
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(runtime)
+                        .services(EndpointService.of(endpoint))
+                        .addWrapperBeforeBlocking(wrapped -> Optional.of(exchange -> {
+                            received.countDown();
+                            wrapped.handler().handleRequest(exchange);
+                        }))
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testExposesTimeRemaining() throws IOException {
+        try (Response response = executeWithTimeout("60000")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(Long.parseLong(response.header("Remaining-Millis")))
+                    .isPositive()
+                    .isLessThanOrEqualTo(Duration.ofMinutes(1).toMillis());
+        }
+    }
+
+    @Test
+    public void testNoDeadline() throws IOException {
+        try (Response response = executeWithTimeout(null)) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Remaining-Millis")).isNull();
+        }
+        // Malformed deadlines are ignored
+        try (Response response = executeWithTimeout("soon")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Remaining-Millis")).isNull();
+        }
+    }
+
+    @Test
+    public void testIgnoresNonPositiveDeadlines() throws IOException {
+        for (String timeoutMillis : new String[] {"0", "-1", "-60000"}) {
+            try (Response response = executeWithTimeout(timeoutMillis)) {
+                assertThat(response.code()).isEqualTo(200);
+                assertThat(response.header("Remaining-Millis")).isNull();
+            }
+        }
+        assertThat(invocations).hasValue(3);
+    }
+
+    @Test
+    public void testRejectsExpiredRequests() throws IOException {
+        // Occupy the only executor thread until the request has been received and its deadline has passed
+        executor.execute(() -> {
+            Uninterruptibles.awaitUninterruptibly(received);
+            Uninterruptibles.sleepUninterruptibly(Duration.ofMillis(20));
+        });
+        try (Response response = executeWithTimeout("1")) {
+            assertThat(response.code()).isEqualTo(500);
+            assertThat(response.body().string()).contains("Conjure:RequestDeadlineExceeded");
+        }
+        assertThat(invocations).hasValue(0);
+    }
+
+    private static Response executeWithTimeout(String timeoutMillis) throws IOException {
+        Request.Builder request = request("/deadline");
+        if (timeoutMillis != null) {
+            request.header("Request-Timeout-Millis", timeoutMillis);
+        }
+        return execute(request);
+    }
+}
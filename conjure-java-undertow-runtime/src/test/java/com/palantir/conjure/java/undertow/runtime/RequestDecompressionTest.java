@@ -0,0 +1,181 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.palantir.conjure.java.undertow.lib.Deserializer;
+import com.palantir.conjure.java.undertow.lib.Serializer;
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Methods;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class RequestDecompressionTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final int LIMIT = 1024;
+
+    private Undertow server;
+
+    @BeforeEach
+    public void before() {
+        UndertowService service = runtime -> {
+            Deserializer<String> required = runtime.bodySerDe().deserializer(new TypeMarker<String>() {});
+            Deserializer<Optional<String>> optional =
+                    runtime.bodySerDe().deserializer(new TypeMarker<Optional<String>>() {});
+            Serializer<String> serializer = runtime.bodySerDe().serializer(new TypeMarker<String>() {});
+            HttpHandler requiredHandler = exchange -> serializer.serialize(required.deserialize(exchange), exchange);
+            HttpHandler optionalHandler =
+                    exchange -> serializer.serialize(optional.deserialize(exchange).orElse("empty"), exchange);
+            return ImmutableList.of(
+                    endpointBuilder("/required", requiredHandler).method(Methods.POST).build(),
+                    endpointBuilder("/optional", optionalHandler).method(Methods.POST).build());
+        };
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(ConjureUndertowRuntime.builder()
+                                .maxDecompressedRequestBytes(LIMIT)
+                                .build())
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop();
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        try (Response response = execute("/required", "gzip", gzip("\"hello\""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"hello\"");
+        }
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        try (Response response = execute("/required", "deflate", deflate("\"hello\""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"hello\"");
+        }
+    }
+
+    @Test
+    public void testRepeatedRequestsReuseInflaters() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            try (Response response = execute("/required", "gzip", gzip("\"value" + i + '"'))) {
+                assertThat(response.body().string()).isEqualTo("\"value" + i + '"');
+            }
+        }
+    }
+
+    @Test
+    public void testIdentity() throws IOException {
+        try (Response response = execute("/required", "identity", "\"hello\"".getBytes(StandardCharsets.UTF_8))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"hello\"");
+        }
+    }
+
+    @Test
+    public void testExceedsLimit() throws IOException {
+        String large = '"' + Strings.repeat("a", LIMIT * 4) + '"';
+        try (Response response = execute("/required", "gzip", gzip(large))) {
+            assertThat(response.code()).isEqualTo(413);
+        }
+    }
+
+    @Test
+    public void testUnsupportedEncoding() throws IOException {
+        try (Response response = execute("/required", "br", gzip("\"hello\""))) {
+            assertThat(response.code()).isEqualTo(415);
+        }
+    }
+
+    @Test
+    public void testMalformedBody() throws IOException {
+        byte[] compressed = gzip("\"hello\"");
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 4);
+        try (Response response = execute("/required", "gzip", truncated)) {
+            assertThat(response.code()).isEqualTo(400);
+        }
+        try (Response response = execute("/required", "gzip", "\"hello\"".getBytes(StandardCharsets.UTF_8))) {
+            assertThat(response.code()).isEqualTo(400);
+        }
+    }
+
+    @Test
+    public void testEmptyOptionalBody() throws IOException {
+        try (Response response = execute("/optional", "gzip", gzip(""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"empty\"");
+        }
+    }
+
+    @Test
+    public void testPresentOptionalBody() throws IOException {
+        try (Response response = execute("/optional", "gzip", gzip("\"value\""))) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.body().string()).isEqualTo("\"value\"");
+        }
+    }
+
+    private static Response execute(String path, String contentEncoding, byte[] body) throws IOException {
+        return TestEndpoints.execute(
+                request(path).post(RequestBody.create(body, JSON)).header("Content-Encoding", contentEncoding));
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(bytes)) {
+            output.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream output = new DeflaterOutputStream(bytes)) {
+            output.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
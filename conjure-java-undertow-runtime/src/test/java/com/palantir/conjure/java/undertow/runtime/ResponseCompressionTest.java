@@ -0,0 +1,194 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.endpointBuilder;
+import static com.palantir.conjure.java.undertow.runtime.TestEndpoints.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import com.palantir.conjure.java.undertow.lib.Serializer;
+import com.palantir.conjure.java.undertow.lib.TypeMarker;
+import com.palantir.conjure.java.undertow.lib.UndertowService;
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.PathTemplateMatch;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public final class ResponseCompressionTest {
+
+    private static final int LARGE = 10_000;
+
+    private Undertow server;
+
+    @AfterEach
+    public void after() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/default/" + LARGE, "gzip")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Encoding")).isEqualTo("gzip");
+            assertThat(response.header("Vary")).isEqualTo("Accept-Encoding");
+            assertThat(decode(new GZIPInputStream(response.body().byteStream()))).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/default/" + LARGE, "gzip;q=0.5, deflate")) {
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Encoding")).isEqualTo("deflate");
+            assertThat(decode(new InflaterInputStream(response.body().byteStream()))).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testRepeatedRequestsReuseDeflaters() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        for (int i = 0; i < 5; i++) {
+            try (Response response = execute("/default/" + LARGE, "gzip")) {
+                assertThat(decode(new GZIPInputStream(response.body().byteStream()))).isEqualTo(expected(LARGE));
+            }
+        }
+    }
+
+    @Test
+    public void testNotAccepted() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/default/" + LARGE, "identity, gzip;q=0")) {
+            assertThat(response.header("Content-Encoding")).isNull();
+            assertThat(response.header("Vary")).isEqualTo("Accept-Encoding");
+            assertThat(response.body().string()).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/default/10", "gzip")) {
+            assertThat(response.header("Content-Encoding")).isNull();
+            assertThat(response.body().string()).isEqualTo(expected(10));
+        }
+    }
+
+    @Test
+    public void testEndpointThreshold() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/threshold/" + LARGE, "gzip")) {
+            assertThat(response.header("Content-Encoding")).isNull();
+            assertThat(response.body().string()).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testEndpointOptOut() throws IOException {
+        start(ConjureUndertowRuntime.builder().responseCompression(true).build());
+        try (Response response = execute("/disabled/" + LARGE, "gzip")) {
+            assertThat(response.header("Content-Encoding")).isNull();
+            assertThat(response.header("Vary")).isNull();
+            assertThat(response.body().string()).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() throws IOException {
+        start(ConjureUndertowRuntime.builder().build());
+        try (Response response = execute("/default/" + LARGE, "gzip")) {
+            assertThat(response.header("Content-Encoding")).isNull();
+            assertThat(response.body().string()).isEqualTo(expected(LARGE));
+        }
+    }
+
+    @Test
+    public void testBufferedResponseHasCompressedContentLength() throws IOException {
+        start(ConjureUndertowRuntime.builder()
+                .responseCompression(true)
+                .maxBufferedResponseBytes(64 * 1024)
+                .build());
+        try (Response response = execute("/default/" + LARGE, "gzip")) {
+            assertThat(response.header("Content-Encoding")).isEqualTo("gzip");
+            byte[] compressed = response.body().bytes();
+            assertThat(response.header("Content-Length")).isEqualTo(Integer.toString(compressed.length));
+            assertThat(compressed.length).isLessThan(LARGE);
+            assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(compressed))))
+                    .isEqualTo(expected(LARGE));
+        }
+    }
+
+    private void start(ConjureUndertowRuntime runtime) {
+        UndertowService service = undertowRuntime -> {
+            Serializer<String> serializer = undertowRuntime.bodySerDe().serializer(new TypeMarker<String>() {});
+            return ImmutableList.of(
+                    stringEndpoint("default", ImmutableSet.of(), serializer),
+                    stringEndpoint(
+                            "threshold", ImmutableSet.of("server-response-compression{threshold=20000}"), serializer),
+                    stringEndpoint("disabled", ImmutableSet.of(ResponseCompression.DISABLED_TAG), serializer));
+        };
+        server = Undertow.builder()
+                .addHttpListener(12345, "localhost")
+                .setHandler(ConjureHandler.builder()
+                        .runtime(runtime)
+                        .services(service)
+                        .build())
+                .build();
+        server.start();
+    }
+
+    private static Endpoint stringEndpoint(String name, Set<String> tags, Serializer<String> serializer) {
+        HttpHandler handler = exchange -> {
+            int length = Integer.parseInt(exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY)
+                    .getParameters()
+                    .get("length"));
+            serializer.serialize(Strings.repeat("a", length), exchange);
+        };
+        return endpointBuilder("/" + name + "/{length}", handler).name(name).tags(tags).build();
+    }
+
+    private static String expected(int length) {
+        return '"' + Strings.repeat("a", length) + '"';
+    }
+
+    private static String decode(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            return new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Response execute(String path, String acceptEncoding) throws IOException {
+        return TestEndpoints.execute(request(path).header("Accept-Encoding", acceptEncoding));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.conjure.java.undertow.HttpServerExchanges;
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public final class StaticResponseHeadersTest {
+
+    private static final HttpString DEPRECATION = HttpString.tryFromString("Deprecation");
+
+    @Test
+    public void testGetEndpoint() throws Exception {
+        HeaderMap headers = handle(endpoint(Methods.GET, Optional.empty()), null);
+        assertThat(headers.getFirst(Headers.CACHE_CONTROL)).isEqualTo("no-cache, no-store, must-revalidate");
+        assertThat(headers.getFirst(Headers.X_CONTENT_TYPE_OPTIONS)).isEqualTo("nosniff");
+        assertThat(headers.getFirst(Headers.REFERRER_POLICY)).isEqualTo("strict-origin-when-cross-origin");
+        assertThat(headers.contains(DEPRECATION)).isFalse();
+        assertThat(headers.contains("X-Content-Security-Policy")).isFalse();
+    }
+
+    @Test
+    public void testDeprecatedPostEndpoint() throws Exception {
+        HeaderMap headers = handle(endpoint(Methods.POST, Optional.of("Use another endpoint")), null);
+        assertThat(headers.contains(Headers.CACHE_CONTROL)).isFalse();
+        assertThat(headers.getFirst(Headers.X_FRAME_OPTIONS)).isEqualTo("sameorigin");
+        assertThat(headers.getFirst(DEPRECATION)).isEqualTo("true");
+    }
+
+    @Test
+    public void testUserAgentHeaders() throws Exception {
+        HeaderMap headers = handle(
+                endpoint(Methods.GET, Optional.empty()),
+                "Mozilla/5.0 (compatible; MSIE 10.0; Windows NT 6.1; Trident/6.0)");
+        assertThat(headers.getFirst("X-Content-Security-Policy"))
+                .isEqualTo(headers.getFirst(Headers.CONTENT_SECURITY_POLICY))
+                .isNotNull();
+    }
+
+    @Test
+    public void testBuilderReplacesValues() {
+        StaticResponseHeaders headers = StaticResponseHeaders.builder()
+                .put(Headers.CACHE_CONTROL, "first")
+                .put(Headers.CACHE_CONTROL, "second")
+                .build();
+        HttpServerExchange exchange = HttpServerExchanges.createStub();
+        exchange.getResponseHeaders().add(Headers.CACHE_CONTROL, "existing");
+        headers.apply(exchange);
+        assertThat(exchange.getResponseHeaders().get(Headers.CACHE_CONTROL)).containsExactly("second");
+    }
+
+    private static HeaderMap handle(Endpoint endpoint, String userAgent) throws Exception {
+        HttpServerExchange exchange = HttpServerExchanges.createStub();
+        if (userAgent != null) {
+            exchange.getRequestHeaders().put(Headers.USER_AGENT, userAgent);
+        }
+        StaticResponseHeaders.handler(endpoint).get().handleRequest(exchange);
+        return exchange.getResponseHeaders();
+    }
+
+    private static Endpoint endpoint(HttpString method, Optional<String> deprecated) {
+        return Endpoint.builder()
+                .method(method)
+                .template("/test")
+                .serviceName("TestService")
+                .name("test")
+                .handler(_exchange -> {})
+                .deprecated(deprecated)
+                .build();
+    }
+}
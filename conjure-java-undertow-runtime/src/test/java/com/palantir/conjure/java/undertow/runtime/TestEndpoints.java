@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import com.palantir.conjure.java.undertow.lib.Endpoint;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Methods;
+import java.io.IOException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/** Test utility to declare endpoints and call them on a server listening on {@code localhost:12345}. */
+final class TestEndpoints {
+
+    private static final OkHttpClient client = new OkHttpClient.Builder().build();
+
+    private TestEndpoints() {}
+
+    /** Returns a {@code GET} endpoint of {@code TestService} named after its template, for example {@code /name}. */
+    static Endpoint endpoint(String template, HttpHandler handler) {
+        return endpointBuilder(template, handler).build();
+    }
+
+    /** Returns a builder initialized as {@link #endpoint(String, HttpHandler)}, to customize the endpoint. */
+    static Endpoint.Builder endpointBuilder(String template, HttpHandler handler) {
+        return Endpoint.builder()
+                .method(Methods.GET)
+                .template(template)
+                .serviceName("TestService")
+                .name(template.substring(1))
+                .handler(handler);
+    }
+
+    /** Returns a {@code GET} request to the given path, to add headers or a body before it is executed. */
+    static Request.Builder request(String path) {
+        return new Request.Builder().get().url("http://localhost:12345" + path);
+    }
+
+    /** Sends a {@code GET} request to the given path. */
+    static Response execute(String path) throws IOException {
+        return execute(request(path));
+    }
+
+    static Response execute(Request.Builder request) throws IOException {
+        return client.newCall(request.build()).execute();
+    }
+}
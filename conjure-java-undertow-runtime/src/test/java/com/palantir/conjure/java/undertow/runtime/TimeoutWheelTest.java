@@ -0,0 +1,127 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public final class TimeoutWheelTest {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Queue<Runnable> ticks = new ArrayDeque<>();
+    private final AtomicInteger expired = new AtomicInteger();
+    private final TimeoutWheel wheel = new TimeoutWheel((task, _delayNanos) -> ticks.add(task), TICK, 4);
+
+    @Test
+    public void testExpiresAfterDelay() throws InterruptedException {
+        wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(2));
+        wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(wheel.liveTimeouts()).isEqualTo(2);
+        // Only a single tick is scheduled for all timeouts
+        assertThat(ticks).hasSize(1);
+        Thread.sleep(10);
+        runTicks();
+        assertThat(expired).hasValue(2);
+        assertThat(wheel.liveTimeouts()).isZero();
+    }
+
+    @Test
+    public void testDoesNotExpireEarly() throws InterruptedException {
+        // Longer than one rotation of the wheel
+        wheel.schedule(expired::incrementAndGet, TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(5);
+            ticks.remove().run();
+        }
+        assertThat(expired).hasValue(0);
+        assertThat(wheel.liveTimeouts()).isEqualTo(1);
+        assertThat(ticks).hasSize(1);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        TimeoutWheel.Timeout timeout = wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(2));
+        // Transfer the timeout into the wheel before it is cancelled
+        ticks.remove().run();
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.liveTimeouts()).isZero();
+        Thread.sleep(10);
+        runTicks();
+        assertThat(expired).hasValue(0);
+    }
+
+    @Test
+    public void testReschedulesOnceIdle() throws InterruptedException {
+        wheel.schedule(expired::incrementAndGet, 0);
+        Thread.sleep(5);
+        runTicks();
+        assertThat(expired).hasValue(1);
+        wheel.schedule(expired::incrementAndGet, 0);
+        assertThat(ticks).hasSize(1);
+        Thread.sleep(5);
+        runTicks();
+        assertThat(expired).hasValue(2);
+    }
+
+    @Test
+    public void testCatchesUpAfterDelayLongerThanRotation() throws InterruptedException {
+        wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(2));
+        wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(200));
+        // Transfer the timeouts into the wheel before the delay
+        ticks.remove().run();
+        Thread.sleep(20);
+        ticks.remove().run();
+        assertThat(expired).hasValue(1);
+        assertThat(wheel.liveTimeouts()).isOne();
+        Thread.sleep(100);
+        ticks.remove().run();
+        assertThat(expired).hasValue(1);
+        Thread.sleep(100);
+        runTicks();
+        assertThat(expired).hasValue(2);
+    }
+
+    @Test
+    public void testSkipsTicksWhileIdle() throws InterruptedException {
+        wheel.schedule(expired::incrementAndGet, 0);
+        Thread.sleep(5);
+        runTicks();
+        Thread.sleep(20);
+        wheel.schedule(expired::incrementAndGet, TimeUnit.MILLISECONDS.toNanos(50));
+        ticks.remove().run();
+        assertThat(expired).hasValue(1);
+        Thread.sleep(60);
+        runTicks();
+        assertThat(expired).hasValue(2);
+    }
+
+    /** Runs ticks until the wheel stops scheduling them, which occurs once no timeouts are live. */
+    private void runTicks() throws InterruptedException {
+        Runnable tick;
+        while ((tick = ticks.poll()) != null) {
+            tick.run();
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.lib;
+
+import com.google.common.io.ByteStreams;
+import com.palantir.logsafe.Preconditions;
+import com.palantir.logsafe.SafeArg;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalLong;
+
+/**
+ * {@link BinaryResponseBody} backed by a region of a file on local disk. The conjure runtime sends file bodies
+ * using a zero-copy transfer from the file to the connection with an exact {@code Content-Length}, rather than
+ * copying the data through the response {@link OutputStream}.
+ *
+ * <p>The file is opened when the response is written, and must not be truncated while the response is in progress.
+ */
+public final class FileBinaryResponseBody implements BinaryResponseBody {
+
+    private final Path path;
+    private final long offset;
+    private final OptionalLong length;
+
+    private FileBinaryResponseBody(Path path, long offset, OptionalLong length) {
+        this.path = Preconditions.checkNotNull(path, "Path is required");
+        Preconditions.checkArgument(offset >= 0, "Offset must not be negative", SafeArg.of("offset", offset));
+        Preconditions.checkArgument(
+                !length.isPresent() || length.getAsLong() >= 0,
+                "Length must not be negative",
+                SafeArg.of("length", length));
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Creates a response body containing the entire file at {@code path}. */
+    public static FileBinaryResponseBody of(Path path) {
+        return new FileBinaryResponseBody(path, 0, OptionalLong.empty());
+    }
+
+    /** Creates a response body containing {@code length} bytes of the file at {@code path} from {@code offset}. */
+    public static FileBinaryResponseBody of(Path path, long offset, long length) {
+        return new FileBinaryResponseBody(path, offset, OptionalLong.of(length));
+    }
+
+    /** Path of the file containing the response data. */
+    public Path path() {
+        return path;
+    }
+
+    /** Position in the file of the first byte of the response. */
+    public long offset() {
+        return offset;
+    }
+
+    /** Number of bytes in the response, or empty if the response continues to the end of the file. */
+    public OptionalLong length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of bytes in the response given the current size of the file. Fails if the file does not
+     * contain the requested region.
+     */
+    public long resolveLength(long fileSize) {
+        Preconditions.checkState(
+                offset <= fileSize,
+                "Offset exceeds the file size",
+                SafeArg.of("offset", offset),
+                SafeArg.of("fileSize", fileSize));
+        if (!length.isPresent()) {
+            return fileSize - offset;
+        }
+        long value = length.getAsLong();
+        Preconditions.checkState(
+                value <= fileSize - offset,
+                "Requested region exceeds the file size",
+                SafeArg.of("offset", offset),
+                SafeArg.of("length", value),
+                SafeArg.of("fileSize", fileSize));
+        return value;
+    }
+
+    /** Copies the file region to {@code responseBody}, used when the zero-copy transfer is not available. */
+    @Override
+    public void write(OutputStream responseBody) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long count = resolveLength(channel.size());
+            channel.position(offset);
+            ByteStreams.copy(ByteStreams.limit(Channels.newInputStream(channel), count), responseBody);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileBinaryResponseBody{path=" + path + ", offset=" + offset + ", length=" + length + '}';
+    }
+}
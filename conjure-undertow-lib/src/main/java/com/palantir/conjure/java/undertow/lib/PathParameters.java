@@ -0,0 +1,51 @@
+/*
+ * (c) Copyright 2022 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.conjure.java.undertow.lib;
+
+import com.palantir.logsafe.Preconditions;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.PathTemplateMatch;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Path parameters of the {@link PathTemplateMatch} for the current request, which may be read by their position in
+ * the endpoint template rather than by name. This is an internal interface that should only be used by generated
+ * code, it may change without warning, and guarantees are only made for generated code.
+ *
+ * <p>Hand-written {@link Endpoint endpoints} may continue to use {@link PathTemplateMatch#getParameters()}.
+ */
+public interface PathParameters {
+
+    /**
+     * Returns the value of the parameter named {@code name}, which is expected to be the parameter at {@code index}
+     * in template order. Implementations fall back to a lookup by name when the index does not match.
+     */
+    @Nullable
+    String get(int index, String name);
+
+    /** Returns the path parameters of the template matched by the request. */
+    static PathParameters of(HttpServerExchange exchange) {
+        PathTemplateMatch match = exchange.getAttachment(PathTemplateMatch.ATTACHMENT_KEY);
+        Preconditions.checkState(match != null, "Request was not routed to a path template");
+        Map<String, String> parameters = match.getParameters();
+        if (parameters instanceof PathParameters) {
+            return (PathParameters) parameters;
+        }
+        return (_index, name) -> parameters.get(name);
+    }
+}
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
 import com.palantir.logsafe.Arg;
 import java.security.cert.Certificate;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -61,4 +62,13 @@ public interface RequestContext {
      * @see javax.net.ssl.SSLSession#getPeerCertificates()
      */
     ImmutableList<Certificate> peerCertificates();
+
+    /**
+     * Returns the time remaining before the client gives up on the current request, if the client provided a
+     * deadline using the {@code Request-Timeout-Millis} header. Long-running work should be abandoned once no time
+     * remains, asynchronous requests are timed out no later than the deadline.
+     */
+    default Optional<Duration> timeRemaining() {
+        return Optional.empty();
+    }
 }